@@ -11,7 +11,8 @@ CREATE TABLE IF NOT EXISTS perfiles (
     nombre VARCHAR(50) UNIQUE NOT NULL,
     descripcion VARCHAR(255),
     fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    fecha_modificacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    fecha_modificacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Tabla de usuarios
@@ -24,9 +25,14 @@ CREATE TABLE IF NOT EXISTS usuarios (
     apellidos VARCHAR(100),
     activo BOOLEAN NOT NULL DEFAULT true,
     fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    fecha_modificacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    fecha_modificacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
+-- Bloqueo optimista (@Version, ETag "id-versión") en bases creadas antes de añadir la columna
+ALTER TABLE perfiles ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE usuarios ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
 -- Tabla de relación usuario-perfiles (many-to-many)
 CREATE TABLE IF NOT EXISTS usuario_perfiles (
     usuario_id BIGINT NOT NULL,
@@ -36,13 +42,39 @@ CREATE TABLE IF NOT EXISTS usuario_perfiles (
     FOREIGN KEY (perfil_id) REFERENCES perfiles(id) ON DELETE CASCADE
 );
 
+-- Tabla de refresh tokens (solo se guarda el SHA-256 del token)
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    usuario_id BIGINT NOT NULL,
+    token_hash VARCHAR(64) NOT NULL,
+    familia VARCHAR(36) NOT NULL,
+    fecha_expiracion TIMESTAMP NOT NULL,
+    revocado BOOLEAN NOT NULL DEFAULT false,
+    fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+);
+
 -- Índices para mejorar el rendimiento
 CREATE INDEX idx_usuarios_username ON usuarios(username);
 CREATE INDEX idx_usuarios_email ON usuarios(email);
 CREATE INDEX idx_usuarios_activo ON usuarios(activo);
+-- Orden de los listados y posición de los cursores de paginación (fecha_creacion, id)
+CREATE INDEX idx_usuarios_fecha_creacion_id ON usuarios(fecha_creacion, id);
+CREATE INDEX idx_perfiles_fecha_creacion_id ON perfiles(fecha_creacion, id);
 CREATE INDEX idx_perfiles_nombre ON perfiles(nombre);
 CREATE INDEX idx_usuario_perfiles_usuario_id ON usuario_perfiles(usuario_id);
 CREATE INDEX idx_usuario_perfiles_perfil_id ON usuario_perfiles(perfil_id);
+CREATE UNIQUE INDEX idx_refresh_tokens_token_hash ON refresh_tokens(token_hash);
+CREATE INDEX idx_refresh_tokens_usuario_id ON refresh_tokens(usuario_id);
+
+-- Búsqueda por subcadena (LIKE '%término%') con índices de trigramas; sin ellos cada búsqueda recorre la tabla
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_usuarios_username_trgm ON usuarios USING gin (LOWER(username) gin_trgm_ops);
+CREATE INDEX idx_usuarios_nombre_trgm ON usuarios USING gin (LOWER(nombre) gin_trgm_ops);
+CREATE INDEX idx_usuarios_apellidos_trgm ON usuarios USING gin (LOWER(apellidos) gin_trgm_ops);
+CREATE INDEX idx_usuarios_email_trgm ON usuarios USING gin (LOWER(email) gin_trgm_ops);
+CREATE INDEX idx_perfiles_nombre_trgm ON perfiles USING gin (LOWER(nombre) gin_trgm_ops);
+CREATE INDEX idx_perfiles_descripcion_trgm ON perfiles USING gin (LOWER(descripcion) gin_trgm_ops);
 
 -- Insertar perfiles por defecto
 INSERT INTO perfiles (nombre, descripcion) VALUES
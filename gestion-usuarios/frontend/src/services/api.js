@@ -23,12 +23,52 @@ api.interceptors.request.use(
   }
 );
 
+// Renovación del token de acceso con el refresh token. Las peticiones que fallan a la vez
+// comparten la misma renovación: el refresh token es de un solo uso y reutilizarlo revoca la sesión.
+let renovacionEnCurso = null;
+
+const renovarToken = () => {
+  if (!renovacionEnCurso) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    renovacionEnCurso = axios
+      .post(`${API_BASE_URL}/auth/refresh`, { refreshToken })
+      .then((response) => {
+        localStorage.setItem('authToken', response.data.token);
+        localStorage.setItem('refreshToken', response.data.refreshToken);
+        return response.data.token;
+      })
+      .finally(() => {
+        renovacionEnCurso = null;
+      });
+  }
+  return renovacionEnCurso;
+};
+
 // Interceptor para manejar errores de autenticación
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
+  async (error) => {
+    const originalRequest = error.config;
+    if (
+      error.response?.status === 401 &&
+      originalRequest &&
+      !originalRequest._reintento &&
+      !originalRequest.url?.startsWith('/auth/') &&
+      localStorage.getItem('refreshToken')
+    ) {
+      originalRequest._reintento = true;
+      try {
+        const token = await renovarToken();
+        originalRequest.headers.Authorization = `Bearer ${token}`;
+        return api(originalRequest);
+      } catch (refreshError) {
+        // El refresh token ya no es válido: se cierra la sesión más abajo
+      }
+    }
+
     if (error.response?.status === 401) {
       localStorage.removeItem('authToken');
+      localStorage.removeItem('refreshToken');
       window.location.href = '/login';
     }
     return Promise.reject(error);
@@ -5,6 +5,7 @@ export const authService = {
     const response = await api.post('/auth/signin', credentials);
     if (response.data.token) {
       localStorage.setItem('authToken', response.data.token);
+      localStorage.setItem('refreshToken', response.data.refreshToken);
       localStorage.setItem('user', JSON.stringify(response.data));
     }
     return response.data;
@@ -12,6 +13,7 @@ export const authService = {
 
   logout: () => {
     localStorage.removeItem('authToken');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('user');
   },
 
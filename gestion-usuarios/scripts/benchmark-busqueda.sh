@@ -0,0 +1,80 @@
+#!/bin/bash
+
+# Benchmark de la búsqueda de usuarios sobre 1M de filas con pgbench.
+# Mide p50/p95/p99 de la consulta de página y de la de conteo con y sin índices de trigramas,
+# y de la consulta ordenada por similitud (app.search.modo=trigram).
+#
+# Uso: PGHOST=localhost PGUSER=postgres PGDATABASE=gestion_usuarios ./scripts/benchmark-busqueda.sh
+# Requiere el esquema de database-schema.sql. Los usuarios de prueba se crean con el dominio @bench.local.
+
+set -e
+
+FILAS=${FILAS:-1000000}
+DURACION=${DURACION:-30}
+CLIENTES=${CLIENTES:-4}
+DIR_TMP=$(mktemp -d)
+trap 'rm -rf "$DIR_TMP"' EXIT
+
+# Términos que escribiría un administrador en el buscador
+TERMINOS="ARRAY['garc','martínez','juan','mar','usuario12345','a1b2','@bench','sandra.f']"
+
+echo "Preparando ${FILAS} usuarios de prueba..."
+psql -q -v ON_ERROR_STOP=1 <<SQL
+INSERT INTO usuarios (username, email, password, nombre, apellidos, activo)
+SELECT 'usuario' || g || substr(md5(g::text), 1, 4),
+       'usuario' || g || '@bench.local',
+       'sin-login',
+       (ARRAY['Juan','María','Carlos','Ana','Luis','Sandra','Diego','Patricia','Javier','Elena'])[1 + g % 10],
+       (ARRAY['Pérez','Gómez','López','Rodríguez','Martínez','Fernández','Torres','Silva','Romero','García'])[1 + (g / 10) % 10]
+           || ' ' || (ARRAY['Ruiz','Díaz','Castro','Vargas','Herrera','Sánchez','Moreno','Jiménez','Navarro','Ortega'])[1 + (g / 100) % 10],
+       g % 7 <> 0
+FROM generate_series((SELECT COUNT(*) FROM usuarios WHERE email LIKE '%@bench.local') + 1, ${FILAS}) g;
+ANALYZE usuarios;
+SQL
+
+# Misma forma que las consultas que genera Hibernate en modo like
+FILTRO="LOWER(u.username) LIKE t.patron OR LOWER(u.nombre) LIKE t.patron OR LOWER(u.apellidos) LIKE t.patron OR LOWER(u.email) LIKE t.patron"
+TERMINO="\\set i random(1, 8)
+WITH t AS (SELECT (${TERMINOS})[:i] AS termino, '%' || (${TERMINOS})[:i] || '%' AS patron)"
+
+cat > "$DIR_TMP/pagina.sql" <<SQL
+${TERMINO}
+SELECT u.id FROM usuarios u, t WHERE ${FILTRO} ORDER BY u.id LIMIT 10;
+SQL
+
+cat > "$DIR_TMP/conteo.sql" <<SQL
+${TERMINO}
+SELECT COUNT(*) FROM usuarios u, t WHERE ${FILTRO};
+SQL
+
+cat > "$DIR_TMP/similitud.sql" <<SQL
+${TERMINO}
+SELECT u.id FROM usuarios u, t WHERE ${FILTRO}
+ORDER BY GREATEST(similarity(LOWER(u.username), t.termino), similarity(LOWER(u.nombre), t.termino),
+                  similarity(LOWER(COALESCE(u.apellidos, '')), t.termino), similarity(LOWER(u.email), t.termino)) DESC, u.id
+LIMIT 10;
+SQL
+
+# Ejecuta un script y muestra los percentiles de latencia (columna 3 del log de pgbench, en µs)
+medir() {
+    local nombre=$1 script=$2 opciones=$3
+    rm -f "$DIR_TMP"/log.*
+    PGOPTIONS="$opciones" pgbench -n -q -c "$CLIENTES" -T "$DURACION" -f "$script" -l --log-prefix="$DIR_TMP/log" > /dev/null
+    cat "$DIR_TMP"/log.* | awk '{print $3}' | sort -n | awk -v nombre="$nombre" '
+        { v[NR] = $1 }
+        END {
+            printf "%-28s n=%-7d p50=%8.1f ms  p95=%8.1f ms  p99=%8.1f ms\n", nombre, NR,
+                v[int(NR * 0.50)] / 1000, v[int(NR * 0.95)] / 1000, v[int(NR * 0.99)] / 1000
+        }'
+}
+
+SIN_INDICES="-c enable_bitmapscan=off -c enable_indexscan=off"
+
+echo "Latencias con ${CLIENTES} clientes durante ${DURACION}s por escenario:"
+medir "página sin índices"     "$DIR_TMP/pagina.sql"    "$SIN_INDICES"
+medir "página con trigramas"   "$DIR_TMP/pagina.sql"    ""
+medir "conteo sin índices"     "$DIR_TMP/conteo.sql"    "$SIN_INDICES"
+medir "conteo con trigramas"   "$DIR_TMP/conteo.sql"    ""
+medir "orden por similitud"    "$DIR_TMP/similitud.sql" ""
+
+echo "Para eliminar los datos de prueba: DELETE FROM usuarios WHERE email LIKE '%@bench.local';"
@@ -0,0 +1,66 @@
+package com.gestionusuarios.gestionusuarios.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes por segundo y por hilo de cada configuración de app.security.password.*.
+ * El coste de un login es el de matches(); el de alta o cambio de contraseña, el de encode().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    // algoritmo:parámetro de coste (strength de bcrypt, memoria KiB de argon2, iteraciones de pbkdf2)
+    @Param({"bcrypt:10", "bcrypt:12", "argon2:16384", "argon2:65536", "pbkdf2:310000", "pbkdf2:600000"})
+    private String configuracion;
+
+    private static final String PASSWORD = "admin123";
+
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        String[] partes = configuracion.split(":");
+        int coste = Integer.parseInt(partes[1]);
+
+        encoder = switch (partes[0]) {
+            case "bcrypt" -> new BCryptPasswordEncoder(coste);
+            case "argon2" -> new Argon2PasswordEncoder(16, 32, 1, coste, 2);
+            case "pbkdf2" -> new Pbkdf2PasswordEncoder("", 16, coste,
+                    Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+            default -> throw new IllegalArgumentException("Configuración no soportada: " + configuracion);
+        };
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+}
@@ -0,0 +1,176 @@
+package com.gestionusuarios.gestionusuarios.benchmark;
+
+import com.gestionusuarios.gestionusuarios.GestionUsuariosApplication;
+import com.gestionusuarios.gestionusuarios.mapper.PerfilMapper;
+import com.gestionusuarios.gestionusuarios.mapper.UsuarioMapper;
+import com.gestionusuarios.gestionusuarios.repository.PerfilRepository;
+import com.gestionusuarios.gestionusuarios.repository.UsuarioRepository;
+import com.gestionusuarios.gestionusuarios.service.UsuarioService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecturas calientes por JPA y por MyBatis sobre los mismos datos: principal por username,
+ * página del listado de usuarios y perfil por nombre. Por defecto usa H2 en memoria; para medir
+ * contra PostgreSQL: -Dbenchmark.datasource.url=jdbc:postgresql://... (base de datos vacía, se recrea el esquema).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersistenciaBenchmark {
+
+    private static final String[] PERFILES = {"ADMIN", "USER", "EDITOR", "AUDITOR"};
+
+    @Param({"10000"})
+    private int usuarios;
+
+    @Param({"20"})
+    private int tamanoPagina;
+
+    private ConfigurableApplicationContext contexto;
+    private TransactionTemplate lectura;
+    private UsuarioRepository usuarioRepository;
+    private PerfilRepository perfilRepository;
+    private UsuarioService usuarioService;
+    private UsuarioMapper usuarioMapper;
+    private PerfilMapper perfilMapper;
+
+    @Setup
+    public void setup() {
+        String url = System.getProperty("benchmark.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        boolean h2 = url.startsWith("jdbc:h2:");
+        contexto = new SpringApplicationBuilder(GestionUsuariosApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=" + url,
+                        "--spring.datasource.driver-class-name=" + (h2 ? "org.h2.Driver" : "org.postgresql.Driver"),
+                        "--spring.datasource.username=" + System.getProperty("benchmark.datasource.username", h2 ? "sa" : "postgres"),
+                        "--spring.datasource.password=" + System.getProperty("benchmark.datasource.password", h2 ? "" : "postgres"),
+                        "--spring.jpa.properties.hibernate.dialect=" + (h2 ? "org.hibernate.dialect.H2Dialect"
+                                : "org.hibernate.dialect.PostgreSQLDialect"),
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--app.persistence.usuarios=jpa",
+                        "--app.persistence.perfiles=jpa",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.gestionusuarios.gestionusuarios=WARN",
+                        "--logging.level.org.springframework.security=WARN");
+
+        usuarioRepository = contexto.getBean(UsuarioRepository.class);
+        perfilRepository = contexto.getBean(PerfilRepository.class);
+        usuarioService = contexto.getBean(UsuarioService.class);
+        usuarioMapper = contexto.getBean(UsuarioMapper.class);
+        perfilMapper = contexto.getBean(PerfilMapper.class);
+        lectura = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        lectura.setReadOnly(true);
+
+        poblar(contexto.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        contexto.close();
+    }
+
+    // Cada usuario recibe uno o dos perfiles para que la agregación tenga filas que agrupar
+    private void poblar(JdbcTemplate jdbc) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        for (String perfil : PERFILES) {
+            jdbc.update("INSERT INTO perfiles (nombre, descripcion, fecha_creacion, fecha_modificacion) VALUES (?, ?, ?, ?)",
+                    perfil, "Perfil " + perfil, ahora, ahora);
+        }
+        List<Long> idsPerfiles = jdbc.queryForList("SELECT id FROM perfiles ORDER BY id", Long.class);
+
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < usuarios; i++) {
+            Timestamp fecha = Timestamp.valueOf(LocalDateTime.now().minusSeconds(usuarios - i));
+            filas.add(new Object[]{"usuario" + i, "usuario" + i + "@example.com", "{noop}benchmark",
+                    "Nombre" + i, "Apellidos" + i, true, fecha, fecha});
+        }
+        jdbc.batchUpdate("INSERT INTO usuarios (username, email, password, nombre, apellidos, activo, fecha_creacion, "
+                + "fecha_modificacion) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", filas);
+
+        List<Object[]> asignaciones = new ArrayList<>();
+        List<Long> idsUsuarios = jdbc.queryForList("SELECT id FROM usuarios ORDER BY id", Long.class);
+        for (int i = 0; i < idsUsuarios.size(); i++) {
+            asignaciones.add(new Object[]{idsUsuarios.get(i), idsPerfiles.get(i % idsPerfiles.size())});
+            if (i % 3 == 0) {
+                asignaciones.add(new Object[]{idsUsuarios.get(i), idsPerfiles.get((i + 1) % idsPerfiles.size())});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO usuario_perfiles (usuario_id, perfil_id) VALUES (?, ?)", asignaciones);
+    }
+
+    private String usernameAleatorio() {
+        return "usuario" + ThreadLocalRandom.current().nextInt(usuarios);
+    }
+
+    private Pageable paginaAleatoria() {
+        int paginas = usuarios / tamanoPagina;
+        return PageRequest.of(ThreadLocalRandom.current().nextInt(paginas), tamanoPagina, Sort.by("fechaCreacion"));
+    }
+
+    @Benchmark
+    public int principalJpa() {
+        return lectura.execute(estado -> usuarioRepository.findByUsername(usernameAleatorio())
+                .map(usuario -> usuario.getPerfiles().size())
+                .orElse(-1));
+    }
+
+    @Benchmark
+    public int principalMyBatis() {
+        return lectura.execute(estado -> usuarioMapper.buscarPorUsername(usernameAleatorio()).getPerfiles().size());
+    }
+
+    @Benchmark
+    public Page<?> listadoJpa() {
+        return usuarioService.obtenerTodosLosUsuarios(paginaAleatoria());
+    }
+
+    @Benchmark
+    public Page<?> listadoMyBatis() {
+        Pageable pageable = paginaAleatoria();
+        return lectura.execute(estado ->
+                PageableExecutionUtils.getPage(usuarioMapper.listar(pageable), pageable, usuarioMapper::contar));
+    }
+
+    @Benchmark
+    public Object perfilJpa() {
+        return lectura.execute(estado -> perfilRepository.findByNombre(PERFILES[ThreadLocalRandom.current().nextInt(PERFILES.length)]));
+    }
+
+    @Benchmark
+    public Object perfilMyBatis() {
+        return lectura.execute(estado -> perfilMapper.buscarPorNombre(PERFILES[ThreadLocalRandom.current().nextInt(PERFILES.length)]));
+    }
+}
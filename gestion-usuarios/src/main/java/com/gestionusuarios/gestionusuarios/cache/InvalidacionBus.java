@@ -0,0 +1,15 @@
+package com.gestionusuarios.gestionusuarios.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Transporte de las invalidaciones de caché entre nodos. Se elige con app.usuario-cache.bus.tipo:
+ * local (nodos que comparten JVM, p. ej. varios contextos en los tests) o postgres (LISTEN/NOTIFY).
+ * Los mensajes publicados por un nodo se entregan al resto, no a él mismo.
+ */
+public interface InvalidacionBus {
+
+    void publicar(InvalidacionUsuarios invalidacion);
+
+    void suscribir(Consumer<InvalidacionUsuarios> receptor);
+}
@@ -0,0 +1,50 @@
+package com.gestionusuarios.gestionusuarios.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Mensaje de invalidación entre nodos: los ids de los usuarios modificados, o todos
+ * (usuarioIds vacío) cuando el cambio afecta a un número indeterminado de usuarios.
+ */
+@Getter
+@AllArgsConstructor
+public class InvalidacionUsuarios {
+
+    private static final String TODOS = "*";
+
+    private final Set<Long> usuarioIds;
+
+    public static InvalidacionUsuarios de(Collection<Long> usuarioIds) {
+        return new InvalidacionUsuarios(Set.copyOf(usuarioIds));
+    }
+
+    public static InvalidacionUsuarios todos() {
+        return new InvalidacionUsuarios(Set.of());
+    }
+
+    public boolean esTotal() {
+        return usuarioIds.isEmpty();
+    }
+
+    public String codificar() {
+        if (esTotal()) {
+            return TODOS;
+        }
+        return usuarioIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    public static InvalidacionUsuarios decodificar(String texto) {
+        if (TODOS.equals(texto)) {
+            return todos();
+        }
+        return new InvalidacionUsuarios(Arrays.stream(texto.split(","))
+                .map(Long::valueOf)
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.gestionusuarios.gestionusuarios.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Entrega en memoria a los demás contextos de la misma JVM. Con un único nodo no hay a quién entregar.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usuario-cache.bus.tipo", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidacionBus implements InvalidacionBus {
+
+    private static final Set<LocalInvalidacionBus> NODOS = ConcurrentHashMap.newKeySet();
+
+    private final List<Consumer<InvalidacionUsuarios>> receptores = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        NODOS.add(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        NODOS.remove(this);
+    }
+
+    @Override
+    public void publicar(InvalidacionUsuarios invalidacion) {
+        for (LocalInvalidacionBus nodo : NODOS) {
+            if (nodo != this) {
+                nodo.receptores.forEach(receptor -> receptor.accept(invalidacion));
+            }
+        }
+    }
+
+    @Override
+    public void suscribir(Consumer<InvalidacionUsuarios> receptor) {
+        receptores.add(receptor);
+    }
+}
@@ -0,0 +1,172 @@
+package com.gestionusuarios.gestionusuarios.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Invalidaciones por LISTEN/NOTIFY de PostgreSQL. Cada nodo escucha el canal en una conexión
+ * propia fuera del pool y publica con pg_notify; el payload lleva el id del nodo para descartar
+ * los mensajes propios. Tras perder la conexión se vacía la caché, porque los mensajes
+ * emitidos mientras tanto no se recuperan.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usuario-cache.bus.tipo", havingValue = "postgres")
+public class PostgresInvalidacionBus implements InvalidacionBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidacionBus.class);
+
+    // El payload de NOTIFY admite menos de 8000 bytes
+    private static final int IDS_POR_MENSAJE = 300;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.usuario-cache.bus.canal:usuarios_cache}")
+    private String canal;
+
+    @Value("${app.usuario-cache.bus.reconexion:5000}")
+    private long reconexionMs;
+
+    private final String nodo = UUID.randomUUID().toString();
+    private final List<Consumer<InvalidacionUsuarios>> receptores = new CopyOnWriteArrayList<>();
+    private TransactionTemplate transaccionPublicacion;
+    private Thread escucha;
+    private volatile boolean activo = true;
+
+    @PostConstruct
+    public void init() {
+        if (!canal.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Canal de invalidación no válido: " + canal);
+        }
+        // Se publica tras el commit de la transacción que modificó los usuarios: NOTIFY necesita la suya propia
+        transaccionPublicacion = new TransactionTemplate(transactionManager);
+        transaccionPublicacion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        escucha = new Thread(this::escuchar, "cache-invalidacion-listen");
+        escucha.setDaemon(true);
+        escucha.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        activo = false;
+        escucha.interrupt();
+        escucha.join(reconexionMs);
+    }
+
+    @Override
+    public void publicar(InvalidacionUsuarios invalidacion) {
+        try {
+            transaccionPublicacion.executeWithoutResult(estado -> {
+                for (InvalidacionUsuarios parte : dividir(invalidacion)) {
+                    jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", String.class,
+                            canal, nodo + "|" + parte.codificar());
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Los demás nodos conservan la entrada como mucho hasta su TTL
+            logger.warn("No se pudo publicar la invalidación de caché: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void suscribir(Consumer<InvalidacionUsuarios> receptor) {
+        receptores.add(receptor);
+    }
+
+    private void escuchar() {
+        boolean reconexion = false;
+        while (activo) {
+            try (Connection conexion = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = conexion.createStatement()) {
+                    statement.execute("LISTEN " + canal);
+                }
+                if (reconexion) {
+                    logger.info("Reconectado al canal de invalidación {}", canal);
+                    entregar(InvalidacionUsuarios.todos());
+                }
+                reconexion = true;
+
+                PGConnection pgConexion = conexion.unwrap(PGConnection.class);
+                while (activo) {
+                    PGNotification[] notificaciones = pgConexion.getNotifications((int) reconexionMs);
+                    if (notificaciones != null) {
+                        for (PGNotification notificacion : notificaciones) {
+                            procesar(notificacion.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!activo) {
+                    return;
+                }
+                logger.warn("Conexión al canal de invalidación {} perdida: {}", canal, ex.getMessage());
+                reconexion = true;
+                try {
+                    Thread.sleep(reconexionMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void procesar(String payload) {
+        int separador = payload.indexOf('|');
+        if (separador < 0 || nodo.equals(payload.substring(0, separador))) {
+            return;
+        }
+        try {
+            entregar(InvalidacionUsuarios.decodificar(payload.substring(separador + 1)));
+        } catch (NumberFormatException ex) {
+            logger.warn("Mensaje de invalidación no válido en {}: {}", canal, payload);
+        }
+    }
+
+    private void entregar(InvalidacionUsuarios invalidacion) {
+        receptores.forEach(receptor -> receptor.accept(invalidacion));
+    }
+
+    private List<InvalidacionUsuarios> dividir(InvalidacionUsuarios invalidacion) {
+        if (invalidacion.getUsuarioIds().size() <= IDS_POR_MENSAJE) {
+            return List.of(invalidacion);
+        }
+        List<InvalidacionUsuarios> partes = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(invalidacion.getUsuarioIds());
+        for (int inicio = 0; inicio < ids.size(); inicio += IDS_POR_MENSAJE) {
+            partes.add(InvalidacionUsuarios.de(ids.subList(inicio, Math.min(inicio + IDS_POR_MENSAJE, ids.size()))));
+        }
+        return partes;
+    }
+}
@@ -0,0 +1,138 @@
+package com.gestionusuarios.gestionusuarios.cache;
+
+import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.event.PerfilModificadoEvent;
+import com.gestionusuarios.gestionusuarios.event.UsuarioModificadoEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caché local (L1) de UsuarioDTO por id y por username. Cada modificación de usuarios la vacía
+ * en este nodo tras el commit y se publica en el InvalidacionBus para que el resto de nodos
+ * haga lo mismo; el TTL acota lo que pueda durar una entrada si se pierde algún mensaje.
+ * Estadísticas en actuator como cache.gets{cache=usuarios.dto.*}.
+ */
+@Component
+public class UsuarioCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private InvalidacionBus bus;
+
+    @Value("${app.usuario-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.usuario-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.usuario-cache.ttl:300000}")
+    private long ttlInMs;
+
+    // Se incrementa antes de cada evicción. Invalidar porId por clave espera a la carga en curso de esa clave,
+    // pero porUsername se recorre por valor y no ve una carga aún sin terminar: si coincide con una evicción,
+    // su resultado (quizá anterior al commit) se retira en lugar de quedarse hasta el TTL.
+    private final AtomicLong evicciones = new AtomicLong();
+
+    private Cache<Long, UsuarioDTO> porId;
+    private Cache<String, UsuarioDTO> porUsername;
+    private Counter invalidacionesRemotas;
+
+    @PostConstruct
+    public void init() {
+        porId = crearCache();
+        porUsername = crearCache();
+        CaffeineCacheMetrics.monitor(meterRegistry, porId, "usuarios.dto.id");
+        CaffeineCacheMetrics.monitor(meterRegistry, porUsername, "usuarios.dto.username");
+        invalidacionesRemotas = Counter.builder("usuarios.cache.invalidaciones.remotas")
+                .description("Invalidaciones recibidas de otros nodos")
+                .register(meterRegistry);
+        bus.suscribir(this::aplicarRemota);
+    }
+
+    private <K> Cache<K, UsuarioDTO> crearCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlInMs))
+                .recordStats()
+                .build();
+    }
+
+    public UsuarioDTO obtenerPorId(Long id, Function<Long, UsuarioDTO> cargador) {
+        if (!enabled) {
+            return cargador.apply(id);
+        }
+        return copiar(porId.get(id, cargador));
+    }
+
+    public UsuarioDTO obtenerPorUsername(String username, Function<String, UsuarioDTO> cargador) {
+        if (!enabled) {
+            return cargador.apply(username);
+        }
+        long eviccionesAntes = evicciones.get();
+        UsuarioDTO usuario = porUsername.get(username, cargador);
+        if (evicciones.get() != eviccionesAntes) {
+            porUsername.asMap().remove(username, usuario);
+        }
+        return copiar(usuario);
+    }
+
+    public void evictarUsuarios(Collection<Long> usuarioIds) {
+        evicciones.incrementAndGet();
+        porId.invalidateAll(usuarioIds);
+        porUsername.asMap().values().removeIf(usuario -> usuarioIds.contains(usuario.getId()));
+    }
+
+    public void evictarTodo() {
+        evicciones.incrementAndGet();
+        porId.invalidateAll();
+        porUsername.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsuarioModificado(UsuarioModificadoEvent event) {
+        evictarUsuarios(event.getUsuarioIds());
+        bus.publicar(InvalidacionUsuarios.de(event.getUsuarioIds()));
+    }
+
+    // Un perfil renombrado cambia los perfiles de un número indeterminado de usuarios
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPerfilModificado(PerfilModificadoEvent event) {
+        if (event.getNombreAnterior() != null) {
+            evictarTodo();
+            bus.publicar(InvalidacionUsuarios.todos());
+        }
+    }
+
+    private void aplicarRemota(InvalidacionUsuarios invalidacion) {
+        invalidacionesRemotas.increment();
+        if (invalidacion.esTotal()) {
+            evictarTodo();
+        } else {
+            evictarUsuarios(invalidacion.getUsuarioIds());
+        }
+    }
+
+    // Las entradas se comparten entre peticiones: cada llamada recibe su copia
+    private static UsuarioDTO copiar(UsuarioDTO usuario) {
+        return new UsuarioDTO(usuario.getId(), usuario.getUsername(), usuario.getEmail(), null,
+                usuario.getNombre(), usuario.getApellidos(), usuario.getActivo(), usuario.getFechaCreacion(),
+                usuario.getFechaModificacion(), usuario.getPerfiles() == null ? null : new HashSet<>(usuario.getPerfiles()),
+                usuario.getVersion());
+    }
+}
@@ -0,0 +1,75 @@
+package com.gestionusuarios.gestionusuarios.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Garantía read-your-writes frente al retraso de replicación: tras una escritura, la misma
+ * petición y el mismo usuario autenticado leen del primario durante la ventana configurada.
+ */
+public class ConsistenciaLecturas {
+
+    private static final String ATRIBUTO_ESCRITURA = ConsistenciaLecturas.class.getName() + ".escritura";
+
+    private static final ThreadLocal<Boolean> FORZAR_PRIMARIO = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> escriturasRecientes;
+
+    public ConsistenciaLecturas(Duration ventana, long maxUsuarios) {
+        this.escriturasRecientes = Caffeine.newBuilder()
+                .expireAfterWrite(ventana)
+                .maximumSize(maxUsuarios)
+                .build();
+    }
+
+    public void registrarEscritura() {
+        RequestAttributes peticion = RequestContextHolder.getRequestAttributes();
+        if (peticion != null) {
+            peticion.setAttribute(ATRIBUTO_ESCRITURA, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+        String usuario = usuarioActual();
+        if (usuario != null) {
+            escriturasRecientes.put(usuario, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Ejecuta lecturas que no admiten datos atrasados (p. ej. credenciales y estado de la cuenta)
+     * contra el primario aunque usen transacciones readOnly. Sin réplicas configuradas no tiene efecto.
+     */
+    public static <T> T enPrimario(Supplier<T> lectura) {
+        if (FORZAR_PRIMARIO.get() != null) {
+            return lectura.get();
+        }
+        FORZAR_PRIMARIO.set(Boolean.TRUE);
+        try {
+            return lectura.get();
+        } finally {
+            FORZAR_PRIMARIO.remove();
+        }
+    }
+
+    public boolean debeLeerDelPrimario() {
+        if (FORZAR_PRIMARIO.get() != null) {
+            return true;
+        }
+        RequestAttributes peticion = RequestContextHolder.getRequestAttributes();
+        if (peticion != null && peticion.getAttribute(ATRIBUTO_ESCRITURA, RequestAttributes.SCOPE_REQUEST) != null) {
+            return true;
+        }
+        String usuario = usuarioActual();
+        return usuario != null && escriturasRecientes.getIfPresent(usuario) != null;
+    }
+
+    private String usuarioActual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
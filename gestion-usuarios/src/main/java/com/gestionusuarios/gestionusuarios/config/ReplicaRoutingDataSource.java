@@ -0,0 +1,75 @@
+package com.gestionusuarios.gestionusuarios.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envía las transacciones readOnly a las réplicas (por turnos) y todo lo demás al primario.
+ * Debe usarse detrás de un LazyConnectionDataSourceProxy para que la conexión se pida
+ * cuando la transacción ya ha marcado si es de solo lectura.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARIO = "primario";
+
+    private final HikariDataSource primario;
+    private final List<HikariDataSource> replicas;
+    private final ConsistenciaLecturas consistencia;
+    private final AtomicInteger siguienteReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primario, List<HikariDataSource> replicas,
+                                    ConsistenciaLecturas consistencia) {
+        this.primario = primario;
+        this.replicas = replicas;
+        this.consistencia = consistencia;
+
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(PRIMARIO, primario);
+        for (int i = 0; i < replicas.size(); i++) {
+            destinos.put(i, replicas.get(i));
+        }
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primario);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                registrarEscritura();
+            }
+            return PRIMARIO;
+        }
+        if (consistencia.debeLeerDelPrimario()) {
+            return PRIMARIO;
+        }
+        return Math.floorMod(siguienteReplica.getAndIncrement(), replicas.size());
+    }
+
+    // La ventana read-your-writes empieza al confirmar, que es cuando la réplica puede empezar a recibir el cambio
+    private void registrarEscritura() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    consistencia.registrarEscritura();
+                }
+            });
+        } else {
+            consistencia.registrarEscritura();
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primario.close();
+    }
+}
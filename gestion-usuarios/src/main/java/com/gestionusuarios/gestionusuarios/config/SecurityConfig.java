@@ -3,7 +3,9 @@ package com.gestionusuarios.gestionusuarios.config;
 import com.gestionusuarios.gestionusuarios.security.CustomUserDetailsService;
 import com.gestionusuarios.gestionusuarios.security.JwtAuthenticationEntryPoint;
 import com.gestionusuarios.gestionusuarios.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -13,11 +15,17 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
@@ -29,6 +37,25 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
 
+    // Algoritmo con el que se codifican las contraseñas nuevas: bcrypt, argon2 o pbkdf2
+    @Value("${app.security.password.algoritmo:bcrypt}")
+    private String passwordAlgoritmo;
+
+    @Value("${app.security.password.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.security.password.argon2.memory:16384}")
+    private int argon2MemoryKb;
+
+    @Value("${app.security.password.argon2.iterations:2}")
+    private int argon2Iterations;
+
+    @Value("${app.security.password.argon2.parallelism:1}")
+    private int argon2Parallelism;
+
+    @Value("${app.security.password.pbkdf2.iterations:310000}")
+    private int pbkdf2Iterations;
+
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
         return new JwtAuthenticationFilter();
@@ -36,7 +63,22 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2MemoryKb, argon2Iterations));
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+
+        if (!encoders.containsKey(passwordAlgoritmo)) {
+            throw new IllegalStateException("Algoritmo de contraseñas no soportado: " + passwordAlgoritmo);
+        }
+
+        // Los hashes sin prefijo {id} guardados antes de la delegación son BCrypt
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(passwordAlgoritmo, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
     }
 
     @Bean
@@ -44,6 +86,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Rehash transparente tras un login correcto si el hash usa parámetros obsoletos
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -58,7 +102,11 @@ public class SecurityConfig {
                 .exceptionHandling().authenticationEntryPoint(jwtAuthenticationEntryPoint).and()
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
                 .authorizeHttpRequests(authz -> authz
+                        // Los despachos ASYNC (fin de una respuesta en streaming) y ERROR (página /error de una
+                        // excepción) pertenecen a una petición ya autorizada; sin esto el error real se convierte en 401
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/.well-known/jwks.json").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                         .requestMatchers("/actuator/**").permitAll()
                         .anyRequest().authenticated()
@@ -2,19 +2,36 @@ package com.gestionusuarios.gestionusuarios.controller;
 
 import com.gestionusuarios.gestionusuarios.dto.JwtResponse;
 import com.gestionusuarios.gestionusuarios.dto.LoginRequest;
+import com.gestionusuarios.gestionusuarios.dto.RefreshTokenRequest;
+import com.gestionusuarios.gestionusuarios.exception.DemasiadosIntentosException;
+import com.gestionusuarios.gestionusuarios.exception.LoginSaturadoException;
+import com.gestionusuarios.gestionusuarios.exception.RefreshTokenInvalidoException;
+import com.gestionusuarios.gestionusuarios.security.CustomUserDetailsService;
 import com.gestionusuarios.gestionusuarios.security.JwtTokenProvider;
+import com.gestionusuarios.gestionusuarios.security.LoginExecutor;
+import com.gestionusuarios.gestionusuarios.security.LoginRateLimiter;
+import com.gestionusuarios.gestionusuarios.security.UserPrincipal;
+import com.gestionusuarios.gestionusuarios.service.RefreshTokenService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/api/auth")
 @Tag(name = "Autenticación", description = "API para autenticación de usuarios")
@@ -27,28 +44,100 @@ public class AuthController {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private LoginExecutor loginExecutor;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
     @PostMapping("/signin")
     @Operation(summary = "Iniciar sesión", description = "Autentica un usuario y genera un token JWT")
-    @ApiResponse(responseCode = "200", description = "Autenticación exitosa")
+    @ApiResponse(responseCode = "200", description = "Autenticación exitosa con los datos del usuario autenticado")
     @ApiResponse(responseCode = "401", description = "Credenciales inválidas")
-    public ResponseEntity<JwtResponse> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    @ApiResponse(responseCode = "429", description = "Demasiados intentos; reintentar tras Retry-After")
+    @ApiResponse(responseCode = "503", description = "Servicio de login saturado; reintentar tras Retry-After")
+    public CompletableFuture<ResponseEntity<JwtResponse>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                                                           HttpServletRequest request) {
+
+        loginRateLimiter.verificar(loginRequest.getUsername(), request);
 
-        Authentication authentication = authenticationManager.authenticate(
+        // La verificación de la contraseña se ejecuta en el pool acotado de logins y la respuesta
+        // se completa de forma asíncrona, sin retener el hilo de Tomcat mientras tanto.
+        // No se toca el SecurityContextHolder: la continuación corre en un hilo del pool
+        return loginExecutor.autenticar(() -> authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         loginRequest.getUsername(),
                         loginRequest.getPassword()
                 )
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
-        String jwt = tokenProvider.generarToken(authentication);
-        
-        // Aquí deberías obtener los detalles del usuario desde el servicio
-        // Por simplicidad, estoy usando los datos del loginRequest
-        JwtResponse jwtResponse = new JwtResponse(jwt, 1L, loginRequest.getUsername(), 
-                "user@example.com", java.util.List.of("USER"));
-        
-        return ResponseEntity.ok(jwtResponse);
+        )).thenApply(authentication -> {
+            // El principal ya se cargó durante la autenticación: la respuesta no necesita otra consulta
+            UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+            String jwt = tokenProvider.generarToken(principal);
+
+            return ResponseEntity.ok(crearRespuesta(jwt, principal, refreshTokenService.emitir(principal.getId())));
+        });
+    }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Renovar token", description = "Canjea un refresh token por un nuevo token JWT y un nuevo refresh token")
+    @ApiResponse(responseCode = "200", description = "Token renovado exitosamente")
+    @ApiResponse(responseCode = "401", description = "Refresh token inválido, expirado o reutilizado")
+    public ResponseEntity<JwtResponse> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        RefreshTokenService.Rotacion rotacion = refreshTokenService.rotar(refreshTokenRequest.getRefreshToken());
+
+        UserPrincipal principal = (UserPrincipal) userDetailsService.loadUserById(rotacion.getUsuarioId());
+        if (!principal.isEnabled()) {
+            refreshTokenService.revocarTodos(principal.getId());
+            throw new RefreshTokenInvalidoException("El usuario está desactivado");
+        }
+
+        String jwt = tokenProvider.generarToken(principal);
+
+        return ResponseEntity.ok(crearRespuesta(jwt, principal, rotacion.getRefreshToken()));
+    }
+
+    private JwtResponse crearRespuesta(String jwt, UserPrincipal principal, String refreshToken) {
+        // Los roles se devuelven con el nombre del perfil, sin el prefijo ROLE_ de Spring Security
+        JwtResponse jwtResponse = new JwtResponse(jwt, principal.getId(), principal.getUsername(),
+                principal.getEmail(), principal.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .map(authority -> authority.startsWith("ROLE_") ? authority.substring(5) : authority)
+                        .collect(Collectors.toList()));
+        jwtResponse.setExpiresIn(tokenProvider.getJwtExpirationInMs() / 1000);
+        jwtResponse.setRefreshToken(refreshToken);
+        return jwtResponse;
+    }
+
+    @ExceptionHandler(LoginSaturadoException.class)
+    public ResponseEntity<Map<String, Object>> handleLoginSaturado(LoginSaturadoException ex,
+                                                                   HttpServletRequest request) {
+        return respuestaReintentar(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex.getRetryAfterSegundos(), request);
+    }
+
+    @ExceptionHandler(DemasiadosIntentosException.class)
+    public ResponseEntity<Map<String, Object>> handleDemasiadosIntentos(DemasiadosIntentosException ex,
+                                                                        HttpServletRequest request) {
+        return respuestaReintentar(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), ex.getRetryAfterSegundos(), request);
+    }
+
+    private ResponseEntity<Map<String, Object>> respuestaReintentar(HttpStatus status, String mensaje,
+                                                                    long retryAfterSegundos,
+                                                                    HttpServletRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", mensaje);
+        body.put("path", request.getRequestURI());
+        body.put("timestamp", LocalDateTime.now().toString());
+
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSegundos))
+                .body(body);
     }
-}
\ No newline at end of file
+}
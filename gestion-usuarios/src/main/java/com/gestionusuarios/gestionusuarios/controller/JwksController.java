@@ -0,0 +1,49 @@
+package com.gestionusuarios.gestionusuarios.controller;
+
+import com.gestionusuarios.gestionusuarios.security.JwtKeyManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@Tag(name = "JWKS", description = "Claves públicas para verificar los tokens emitidos")
+public class JwksController {
+
+    @Autowired
+    private JwtKeyManager keyManager;
+
+    // Una clave nueva debe publicarse al menos max-age segundos antes de empezar a firmar con ella
+    @Value("${app.jwt.jwks.max-age:3600}")
+    private long maxAgeSegundos;
+
+    @GetMapping("/.well-known/jwks.json")
+    @Operation(summary = "Claves públicas de verificación (JWKS)")
+    public ResponseEntity<Map<String, Object>> obtenerJwks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSegundos, TimeUnit.SECONDS)
+                .cachePublic()
+                .staleIfError(1, TimeUnit.DAYS);
+
+        if (keyManager.getJwksEtag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(keyManager.getJwksEtag())
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(keyManager.getJwksEtag())
+                .body(keyManager.getJwks());
+    }
+}
@@ -1,5 +1,6 @@
 package com.gestionusuarios.gestionusuarios.controller;
 
+import com.gestionusuarios.gestionusuarios.dto.CursorPage;
 import com.gestionusuarios.gestionusuarios.dto.PerfilDTO;
 import com.gestionusuarios.gestionusuarios.service.PerfilService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -11,9 +12,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/perfiles")
@@ -36,28 +39,45 @@ public class PerfilController {
     @GetMapping("/{id}")
     @Operation(summary = "Obtener perfil por ID", description = "Obtiene un perfil específico por su ID")
     @ApiResponse(responseCode = "200", description = "Perfil encontrado")
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag de If-None-Match")
     @ApiResponse(responseCode = "404", description = "Perfil no encontrado")
-    public ResponseEntity<PerfilDTO> obtenerPerfilPorId(@PathVariable Long id) {
+    public ResponseEntity<PerfilDTO> obtenerPerfilPorId(@PathVariable Long id, WebRequest request) {
         PerfilDTO perfil = perfilService.obtenerPerfilPorId(id);
-        return ResponseEntity.ok(perfil);
+        return RespuestasCondicionales.recurso(request, perfil, perfil.getId(), perfil.getVersion(), perfil.getFechaCreacion(), perfil.getFechaModificacion());
     }
 
     @GetMapping("/nombre/{nombre}")
     @Operation(summary = "Obtener perfil por nombre", description = "Obtiene un perfil específico por su nombre")
     @ApiResponse(responseCode = "200", description = "Perfil encontrado")
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag de If-None-Match")
     @ApiResponse(responseCode = "404", description = "Perfil no encontrado")
-    public ResponseEntity<PerfilDTO> obtenerPerfilPorNombre(@PathVariable String nombre) {
+    public ResponseEntity<PerfilDTO> obtenerPerfilPorNombre(@PathVariable String nombre, WebRequest request) {
         PerfilDTO perfil = perfilService.obtenerPerfilPorNombre(nombre);
-        return ResponseEntity.ok(perfil);
+        return RespuestasCondicionales.recurso(request, perfil, perfil.getId(), perfil.getVersion(), perfil.getFechaCreacion(), perfil.getFechaModificacion());
     }
 
     @GetMapping
     @Operation(summary = "Obtener todos los perfiles", description = "Obtiene una lista paginada de todos los perfiles")
     @ApiResponse(responseCode = "200", description = "Lista de perfiles obtenida exitosamente")
     public ResponseEntity<Page<PerfilDTO>> obtenerTodosLosPerfiles(
-            @PageableDefault(size = 10, sort = "fechaCreacion") Pageable pageable) {
+            @PageableDefault(size = 10, sort = "fechaCreacion") Pageable pageable, WebRequest request) {
         Page<PerfilDTO> perfiles = perfilService.obtenerTodosLosPerfiles(pageable);
-        return ResponseEntity.ok(perfiles);
+        return RespuestasCondicionales.pagina(request, perfiles, perfiles.getContent(), PerfilDTO::getId, PerfilDTO::getVersion,
+            perfiles.getNumber(), perfiles.getSize(), perfiles.getTotalElements(), perfiles.getSort());
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Obtener perfiles por cursor", description = "Lista los perfiles por orden de creación usando un cursor en lugar de número de página")
+    @ApiResponse(responseCode = "200", description = "Lista de perfiles obtenida exitosamente")
+    @ApiResponse(responseCode = "400", description = "Cursor inválido")
+    public ResponseEntity<CursorPage<PerfilDTO>> obtenerPerfilesPorCursor(
+            @Parameter(description = "Cursor devuelto en nextCursor; vacío para la primera página") @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Calcular el total de elementos") @RequestParam(defaultValue = "false") boolean incluirTotal,
+            WebRequest request) {
+        CursorPage<PerfilDTO> perfiles = perfilService.obtenerPerfilesPorCursor(cursor, size, incluirTotal);
+        return RespuestasCondicionales.pagina(request, perfiles, perfiles.getContent(), PerfilDTO::getId, PerfilDTO::getVersion,
+            perfiles.getNextCursor(), perfiles.getTotalElements());
     }
 
     @GetMapping("/search")
@@ -65,9 +85,10 @@ public class PerfilController {
     @ApiResponse(responseCode = "200", description = "Búsqueda realizada exitosamente")
     public ResponseEntity<Page<PerfilDTO>> buscarPerfiles(
             @Parameter(description = "Término de búsqueda") @RequestParam String searchTerm,
-            @PageableDefault(size = 10) Pageable pageable) {
+            @PageableDefault(size = 10) Pageable pageable, WebRequest request) {
         Page<PerfilDTO> perfiles = perfilService.buscarPerfiles(searchTerm, pageable);
-        return ResponseEntity.ok(perfiles);
+        return RespuestasCondicionales.pagina(request, perfiles, perfiles.getContent(), PerfilDTO::getId, PerfilDTO::getVersion,
+            perfiles.getNumber(), perfiles.getSize(), perfiles.getTotalElements(), perfiles.getSort());
     }
 
     @PutMapping("/{id}")
@@ -75,11 +96,17 @@ public class PerfilController {
     @ApiResponse(responseCode = "200", description = "Perfil actualizado exitosamente")
     @ApiResponse(responseCode = "404", description = "Perfil no encontrado")
     @ApiResponse(responseCode = "409", description = "El nombre del perfil ya existe")
+    @ApiResponse(responseCode = "412", description = "El perfil ha cambiado desde la versión indicada en If-Match")
     public ResponseEntity<PerfilDTO> actualizarPerfil(
             @PathVariable Long id,
-            @Valid @RequestBody PerfilDTO perfilDTO) {
-        PerfilDTO perfilActualizado = perfilService.actualizarPerfil(id, perfilDTO);
-        return ResponseEntity.ok(perfilActualizado);
+            @Valid @RequestBody PerfilDTO perfilDTO,
+            @Parameter(description = "ETag obtenido en el GET; si no coincide con la versión actual se responde 412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        PerfilDTO perfilActualizado = perfilService.actualizarPerfil(id, perfilDTO,
+            RespuestasCondicionales.versionEsperada(ifMatch, id));
+        return ResponseEntity.ok()
+            .eTag(RespuestasCondicionales.etag(perfilActualizado.getId(), perfilActualizado.getVersion()))
+            .body(perfilActualizado);
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,98 @@
+package com.gestionusuarios.gestionusuarios.controller;
+
+import com.gestionusuarios.gestionusuarios.exception.PrecondicionFallidaException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * GET condicionales y escrituras con If-Match. Los recursos individuales llevan un ETag fuerte
+ * "id-versión" (la columna @Version) y Last-Modified; las páginas, un ETag débil. Si If-None-Match
+ * coincide se responde 304 sin cuerpo, de modo que el DTO ya obtenido (en caché en el caso de usuarios
+ * y perfiles) no llega a serializarse.
+ */
+final class RespuestasCondicionales {
+
+    // El navegador guarda la respuesta pero revalida siempre con If-None-Match
+    private static final CacheControl REVALIDAR = CacheControl.noCache().cachePrivate();
+
+    private RespuestasCondicionales() {
+    }
+
+    static String etag(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * @return null si el cliente ya tiene la versión actual (la respuesta 304 queda escrita)
+     */
+    static <T> ResponseEntity<T> recurso(WebRequest request, T cuerpo, Long id, Long version,
+                                         LocalDateTime fechaCreacion, LocalDateTime fechaModificacion) {
+        LocalDateTime modificado = fechaModificacion != null ? fechaModificacion : fechaCreacion;
+        long ultimaModificacion = modificado == null ? -1 : modificado.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (request.checkNotModified(version == null ? null : etag(id, version), ultimaModificacion)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDAR).body(cuerpo);
+    }
+
+    /**
+     * ETag débil calculado con los ids y versiones de los elementos y los metadatos de la página
+     * (total, número, cursor...): cualquier cambio en ellos lo altera.
+     */
+    static <T, E> ResponseEntity<T> pagina(WebRequest request, T cuerpo, List<E> elementos,
+                                           Function<E, Long> id, Function<E, Long> version,
+                                           Object... metadatos) {
+        StringBuilder huella = new StringBuilder();
+        for (Object metadato : metadatos) {
+            huella.append(metadato).append('|');
+        }
+        for (E elemento : elementos) {
+            huella.append(id.apply(elemento)).append(':').append(version.apply(elemento)).append(',');
+        }
+        if (request.checkNotModified("W/\"" + resumen(huella) + "\"")) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDAR).body(cuerpo);
+    }
+
+    /**
+     * Versión exigida por If-Match para el recurso id. Sin cabecera o con "*" no se exige ninguna (null).
+     * Comparación fuerte: un ETag débil o de otro recurso no coincide nunca, y se responde 412.
+     */
+    static Long versionEsperada(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefijo = "\"" + id + "-";
+        for (String etag : ifMatch.split(",")) {
+            String valor = etag.trim();
+            if (valor.startsWith(prefijo) && valor.endsWith("\"") && valor.length() > prefijo.length() + 1) {
+                try {
+                    return Long.valueOf(valor.substring(prefijo.length(), valor.length() - 1));
+                } catch (NumberFormatException ex) {
+                    // No es un ETag emitido por nosotros: se prueba el siguiente
+                }
+            }
+        }
+        throw new PrecondicionFallidaException("If-Match no corresponde a ninguna versión del recurso " + id);
+    }
+
+    private static String resumen(CharSequence huella) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(huella.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 12);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package com.gestionusuarios.gestionusuarios.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gestionusuarios.gestionusuarios.dto.CursorPage;
+import com.gestionusuarios.gestionusuarios.dto.ImportacionResultado;
+import com.gestionusuarios.gestionusuarios.dto.OperacionMasivaResultado;
+import com.gestionusuarios.gestionusuarios.dto.SeleccionUsuariosDTO;
 import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.service.ExportacionUsuariosService;
+import com.gestionusuarios.gestionusuarios.service.ImportacionUsuariosService;
 import com.gestionusuarios.gestionusuarios.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,9 +18,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/usuarios")
@@ -24,6 +41,15 @@ public class UsuarioController {
     @Autowired
     private UsuarioService usuarioService;
 
+    @Autowired
+    private ImportacionUsuariosService importacionUsuariosService;
+
+    @Autowired
+    private ExportacionUsuariosService exportacionUsuariosService;
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
     @PostMapping
     @Operation(summary = "Crear nuevo usuario", description = "Crea un nuevo usuario en el sistema")
     @ApiResponse(responseCode = "201", description = "Usuario creado exitosamente")
@@ -33,31 +59,124 @@ public class UsuarioController {
         return new ResponseEntity<>(nuevoUsuario, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/importar", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    @Operation(summary = "Importar usuarios", description = "Alta masiva desde NDJSON (un usuario JSON por línea) o CSV con cabecera (perfiles separados por |)")
+    @ApiResponse(responseCode = "200", description = "Importación terminada; las filas rechazadas se detallan en errores")
+    @ApiResponse(responseCode = "400", description = "Cabecera CSV inválida")
+    public ResponseEntity<ImportacionResultado> importarUsuarios(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream entrada) throws IOException {
+        ImportacionUsuariosService.Formato formato = TEXT_CSV.isCompatibleWith(contentType)
+            ? ImportacionUsuariosService.Formato.CSV
+            : ImportacionUsuariosService.Formato.NDJSON;
+        return ResponseEntity.ok(importacionUsuariosService.importar(entrada, formato));
+    }
+
+    @GetMapping("/exportar")
+    @Operation(summary = "Exportar usuarios", description = "Descarga todos los usuarios (CSV o NDJSON) en streaming, con filtros opcionales; gzip si el cliente lo acepta")
+    @ApiResponse(responseCode = "200", description = "Exportación en curso")
+    public ResponseEntity<StreamingResponseBody> exportarUsuarios(
+            @RequestParam(defaultValue = "CSV") ExportacionUsuariosService.Formato formato,
+            @RequestParam(required = false) String perfilNombre,
+            @RequestParam(required = false) Boolean activo,
+            @Parameter(description = "Término de búsqueda") @RequestParam(required = false) String searchTerm,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = aceptaGzip(acceptEncoding);
+        boolean csv = formato == ExportacionUsuariosService.Formato.CSV;
+
+        StreamingResponseBody cuerpo = salida -> {
+            if (gzip) {
+                GZIPOutputStream comprimida = new GZIPOutputStream(salida, 64 * 1024);
+                exportacionUsuariosService.exportar(perfilNombre, activo, searchTerm, formato, comprimida);
+                comprimida.finish();
+            } else {
+                exportacionUsuariosService.exportar(perfilNombre, activo, searchTerm, formato, salida);
+            }
+        };
+
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+            .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"usuarios." + (csv ? "csv" : "ndjson") + "\"")
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(cuerpo);
+    }
+
+    // Accept-Encoding (RFC 9110): gzip, x-gzip o el comodín con q > 0. La entrada explícita de gzip prevalece
+    // sobre *, de modo que "gzip;q=0, *" no lo acepta; un q mal formado cuenta como 0.
+    private static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double calidadGzip = null;
+        Double calidadComodin = null;
+        for (String entrada : acceptEncoding.split(",")) {
+            String[] partes = entrada.split(";");
+            String codificacion = partes[0].trim().toLowerCase(Locale.ROOT);
+            double calidad = 1.0;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        calidad = Double.parseDouble(parametro.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        calidad = 0;
+                    }
+                }
+            }
+            if (codificacion.equals("gzip") || codificacion.equals("x-gzip")) {
+                calidadGzip = calidad;
+            } else if (codificacion.equals("*")) {
+                calidadComodin = calidad;
+            }
+        }
+        double calidad = calidadGzip != null ? calidadGzip : calidadComodin != null ? calidadComodin : 0;
+        return calidad > 0;
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Obtener usuario por ID", description = "Obtiene un usuario específico por su ID")
     @ApiResponse(responseCode = "200", description = "Usuario encontrado")
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag de If-None-Match")
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
-    public ResponseEntity<UsuarioDTO> obtenerUsuarioPorId(@PathVariable Long id) {
+    public ResponseEntity<UsuarioDTO> obtenerUsuarioPorId(@PathVariable Long id, WebRequest request) {
         UsuarioDTO usuario = usuarioService.obtenerUsuarioPorId(id);
-        return ResponseEntity.ok(usuario);
+        return RespuestasCondicionales.recurso(request, usuario, usuario.getId(), usuario.getVersion(), usuario.getFechaCreacion(), usuario.getFechaModificacion());
     }
 
     @GetMapping("/username/{username}")
     @Operation(summary = "Obtener usuario por username", description = "Obtiene un usuario específico por su nombre de usuario")
     @ApiResponse(responseCode = "200", description = "Usuario encontrado")
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag de If-None-Match")
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
-    public ResponseEntity<UsuarioDTO> obtenerUsuarioPorUsername(@PathVariable String username) {
+    public ResponseEntity<UsuarioDTO> obtenerUsuarioPorUsername(@PathVariable String username, WebRequest request) {
         UsuarioDTO usuario = usuarioService.obtenerUsuarioPorUsername(username);
-        return ResponseEntity.ok(usuario);
+        return RespuestasCondicionales.recurso(request, usuario, usuario.getId(), usuario.getVersion(), usuario.getFechaCreacion(), usuario.getFechaModificacion());
     }
 
     @GetMapping
     @Operation(summary = "Obtener todos los usuarios", description = "Obtiene una lista paginada de todos los usuarios")
     @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente")
     public ResponseEntity<Page<UsuarioDTO>> obtenerTodosLosUsuarios(
-            @PageableDefault(size = 10, sort = "fechaCreacion") Pageable pageable) {
+            @PageableDefault(size = 10, sort = "fechaCreacion") Pageable pageable, WebRequest request) {
         Page<UsuarioDTO> usuarios = usuarioService.obtenerTodosLosUsuarios(pageable);
-        return ResponseEntity.ok(usuarios);
+        return RespuestasCondicionales.pagina(request, usuarios, usuarios.getContent(), UsuarioDTO::getId, UsuarioDTO::getVersion,
+            usuarios.getNumber(), usuarios.getSize(), usuarios.getTotalElements(), usuarios.getSort());
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Obtener usuarios por cursor", description = "Lista los usuarios por orden de creación usando un cursor en lugar de número de página")
+    @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente")
+    @ApiResponse(responseCode = "400", description = "Cursor inválido")
+    public ResponseEntity<CursorPage<UsuarioDTO>> obtenerUsuariosPorCursor(
+            @Parameter(description = "Cursor devuelto en nextCursor; vacío para la primera página") @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Calcular el total de elementos") @RequestParam(defaultValue = "false") boolean incluirTotal,
+            WebRequest request) {
+        CursorPage<UsuarioDTO> usuarios = usuarioService.obtenerUsuariosPorCursor(cursor, size, incluirTotal);
+        return RespuestasCondicionales.pagina(request, usuarios, usuarios.getContent(), UsuarioDTO::getId, UsuarioDTO::getVersion,
+            usuarios.getNextCursor(), usuarios.getTotalElements());
     }
 
     @GetMapping("/search")
@@ -65,9 +184,24 @@ public class UsuarioController {
     @ApiResponse(responseCode = "200", description = "Búsqueda realizada exitosamente")
     public ResponseEntity<Page<UsuarioDTO>> buscarUsuarios(
             @Parameter(description = "Término de búsqueda") @RequestParam String searchTerm,
-            @PageableDefault(size = 10) Pageable pageable) {
+            @PageableDefault(size = 10) Pageable pageable, WebRequest request) {
         Page<UsuarioDTO> usuarios = usuarioService.buscarUsuarios(searchTerm, pageable);
-        return ResponseEntity.ok(usuarios);
+        return RespuestasCondicionales.pagina(request, usuarios, usuarios.getContent(), UsuarioDTO::getId, UsuarioDTO::getVersion,
+            usuarios.getNumber(), usuarios.getSize(), usuarios.getTotalElements(), usuarios.getSort());
+    }
+
+    @GetMapping("/search/cursor")
+    @Operation(summary = "Buscar usuarios por cursor", description = "Busca usuarios por término de búsqueda paginando con cursor")
+    @ApiResponse(responseCode = "200", description = "Búsqueda realizada exitosamente")
+    @ApiResponse(responseCode = "400", description = "Cursor inválido")
+    public ResponseEntity<CursorPage<UsuarioDTO>> buscarUsuariosPorCursor(
+            @Parameter(description = "Término de búsqueda") @RequestParam String searchTerm,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean incluirTotal, WebRequest request) {
+        CursorPage<UsuarioDTO> usuarios = usuarioService.buscarUsuariosPorCursor(searchTerm, cursor, size, incluirTotal);
+        return RespuestasCondicionales.pagina(request, usuarios, usuarios.getContent(), UsuarioDTO::getId, UsuarioDTO::getVersion,
+            usuarios.getNextCursor(), usuarios.getTotalElements());
     }
 
     @GetMapping("/perfil/{perfilNombre}")
@@ -75,9 +209,24 @@ public class UsuarioController {
     @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente")
     public ResponseEntity<Page<UsuarioDTO>> obtenerUsuariosPorPerfil(
             @PathVariable String perfilNombre,
-            @PageableDefault(size = 10) Pageable pageable) {
+            @PageableDefault(size = 10) Pageable pageable, WebRequest request) {
         Page<UsuarioDTO> usuarios = usuarioService.obtenerUsuariosPorPerfil(perfilNombre, pageable);
-        return ResponseEntity.ok(usuarios);
+        return RespuestasCondicionales.pagina(request, usuarios, usuarios.getContent(), UsuarioDTO::getId, UsuarioDTO::getVersion,
+            usuarios.getNumber(), usuarios.getSize(), usuarios.getTotalElements(), usuarios.getSort());
+    }
+
+    @GetMapping("/perfil/{perfilNombre}/cursor")
+    @Operation(summary = "Obtener usuarios por perfil por cursor", description = "Obtiene los usuarios con un perfil específico paginando con cursor")
+    @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente")
+    @ApiResponse(responseCode = "400", description = "Cursor inválido")
+    public ResponseEntity<CursorPage<UsuarioDTO>> obtenerUsuariosPorPerfilPorCursor(
+            @PathVariable String perfilNombre,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean incluirTotal, WebRequest request) {
+        CursorPage<UsuarioDTO> usuarios = usuarioService.obtenerUsuariosPorPerfilPorCursor(perfilNombre, cursor, size, incluirTotal);
+        return RespuestasCondicionales.pagina(request, usuarios, usuarios.getContent(), UsuarioDTO::getId, UsuarioDTO::getVersion,
+            usuarios.getNextCursor(), usuarios.getTotalElements());
     }
 
     @PutMapping("/{id}")
@@ -85,11 +234,36 @@ public class UsuarioController {
     @ApiResponse(responseCode = "200", description = "Usuario actualizado exitosamente")
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
     @ApiResponse(responseCode = "409", description = "El nombre de usuario o email ya existe")
+    @ApiResponse(responseCode = "412", description = "El usuario ha cambiado desde la versión indicada en If-Match")
     public ResponseEntity<UsuarioDTO> actualizarUsuario(
             @PathVariable Long id,
-            @Valid @RequestBody UsuarioDTO usuarioDTO) {
-        UsuarioDTO usuarioActualizado = usuarioService.actualizarUsuario(id, usuarioDTO);
-        return ResponseEntity.ok(usuarioActualizado);
+            @Valid @RequestBody UsuarioDTO usuarioDTO,
+            @Parameter(description = "ETag obtenido en el GET; si no coincide con la versión actual se responde 412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UsuarioDTO usuarioActualizado = usuarioService.actualizarUsuario(id, usuarioDTO,
+            RespuestasCondicionales.versionEsperada(ifMatch, id));
+        return ResponseEntity.ok()
+            .eTag(RespuestasCondicionales.etag(usuarioActualizado.getId(), usuarioActualizado.getVersion()))
+            .body(usuarioActualizado);
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Actualizar usuario parcialmente", description = "JSON Merge Patch: solo se modifican los campos enviados; null borra los opcionales y perfiles se aplica como diferencia")
+    @ApiResponse(responseCode = "200", description = "Usuario actualizado exitosamente")
+    @ApiResponse(responseCode = "400", description = "Campo desconocido o valor inválido")
+    @ApiResponse(responseCode = "404", description = "Usuario o perfil no encontrado")
+    @ApiResponse(responseCode = "409", description = "El nombre de usuario o email ya existe")
+    @ApiResponse(responseCode = "412", description = "El usuario ha cambiado desde la versión indicada en If-Match")
+    public ResponseEntity<UsuarioDTO> actualizarUsuarioParcialmente(
+            @PathVariable Long id,
+            @RequestBody JsonNode cambios,
+            @Parameter(description = "ETag obtenido en el GET; si no coincide con la versión actual se responde 412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UsuarioDTO usuarioActualizado = usuarioService.actualizarUsuarioParcialmente(id, cambios,
+            RespuestasCondicionales.versionEsperada(ifMatch, id));
+        return ResponseEntity.ok()
+            .eTag(RespuestasCondicionales.etag(usuarioActualizado.getId(), usuarioActualizado.getVersion()))
+            .body(usuarioActualizado);
     }
 
     @DeleteMapping("/{id}")
@@ -105,10 +279,12 @@ public class UsuarioController {
     @Operation(summary = "Cambiar estado del usuario", description = "Activa o desactiva un usuario")
     @ApiResponse(responseCode = "200", description = "Estado cambiado exitosamente")
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
+    @ApiResponse(responseCode = "412", description = "El usuario ha cambiado desde la versión indicada en If-Match")
     public ResponseEntity<Void> cambiarEstadoUsuario(
             @PathVariable Long id,
-            @RequestParam boolean activo) {
-        usuarioService.cambiarEstadoUsuario(id, activo);
+            @RequestParam boolean activo,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        usuarioService.cambiarEstadoUsuario(id, activo, RespuestasCondicionales.versionEsperada(ifMatch, id));
         return ResponseEntity.ok().build();
     }
 
@@ -133,4 +309,34 @@ public class UsuarioController {
         usuarioService.removerPerfilDeUsuario(usuarioId, perfilId);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    @PatchMapping("/masivo/estado")
+    @Operation(summary = "Cambiar estado de varios usuarios", description = "Activa o desactiva los usuarios seleccionados por ids, búsqueda o perfil")
+    @ApiResponse(responseCode = "200", description = "Estado cambiado; afectados indica los usuarios que cambiaron")
+    @ApiResponse(responseCode = "400", description = "Selección inválida")
+    public ResponseEntity<OperacionMasivaResultado> cambiarEstadoUsuarios(
+            @Valid @RequestBody SeleccionUsuariosDTO seleccion,
+            @RequestParam boolean activo) {
+        return ResponseEntity.ok(usuarioService.cambiarEstadoUsuarios(seleccion, activo));
+    }
+
+    @PostMapping("/masivo/perfiles/{perfilId}/asignar")
+    @Operation(summary = "Asignar perfil a varios usuarios", description = "Asigna un perfil a los usuarios seleccionados por ids, búsqueda o perfil")
+    @ApiResponse(responseCode = "200", description = "Perfil asignado; afectados indica las asignaciones nuevas")
+    @ApiResponse(responseCode = "404", description = "Perfil no encontrado")
+    public ResponseEntity<OperacionMasivaResultado> asignarPerfilAUsuarios(
+            @PathVariable Long perfilId,
+            @Valid @RequestBody SeleccionUsuariosDTO seleccion) {
+        return ResponseEntity.ok(usuarioService.asignarPerfilAUsuarios(seleccion, perfilId));
+    }
+
+    @PostMapping("/masivo/perfiles/{perfilId}/remover")
+    @Operation(summary = "Remover perfil de varios usuarios", description = "Remueve un perfil de los usuarios seleccionados por ids, búsqueda o perfil")
+    @ApiResponse(responseCode = "200", description = "Perfil removido; afectados indica las asignaciones eliminadas")
+    @ApiResponse(responseCode = "404", description = "Perfil no encontrado")
+    public ResponseEntity<OperacionMasivaResultado> removerPerfilDeUsuarios(
+            @PathVariable Long perfilId,
+            @Valid @RequestBody SeleccionUsuariosDTO seleccion) {
+        return ResponseEntity.ok(usuarioService.removerPerfilDeUsuarios(seleccion, perfilId));
+    }
+}
@@ -0,0 +1,19 @@
+package com.gestionusuarios.gestionusuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    // Cursor opaco para pedir la página siguiente; null en la última página
+    private String nextCursor;
+    private int size;
+    // Solo se calcula si se pide con incluirTotal=true
+    private Long totalElements;
+}
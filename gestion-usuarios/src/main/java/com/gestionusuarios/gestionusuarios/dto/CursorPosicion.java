@@ -0,0 +1,43 @@
+package com.gestionusuarios.gestionusuarios.dto;
+
+import com.gestionusuarios.gestionusuarios.exception.CursorInvalidoException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición (fechaCreacion, id) del último elemento devuelto, codificada como cursor opaco.
+ * Sin cursor se empieza antes del primer elemento, de modo que todas las páginas usan la misma consulta.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPosicion {
+
+    public static final CursorPosicion INICIO = new CursorPosicion(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    private final LocalDateTime fechaCreacion;
+    private final Long id;
+
+    public String codificar() {
+        String valor = fechaCreacion + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorPosicion decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return INICIO;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf(',');
+            return new CursorPosicion(LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.valueOf(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException ex) {
+            throw new CursorInvalidoException("Cursor de paginación inválido");
+        }
+    }
+}
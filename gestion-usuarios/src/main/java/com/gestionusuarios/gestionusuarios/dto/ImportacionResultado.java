@@ -0,0 +1,31 @@
+package com.gestionusuarios.gestionusuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ImportacionResultado {
+
+    private long procesados;
+    private long importados;
+    private long fallidos;
+    private long duracionMs;
+    private double usuariosPorSegundo;
+
+    // Se conservan como mucho app.import.max-errores; fallidos lleva la cuenta completa
+    private List<ErrorFila> errores = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ErrorFila {
+        private long linea;
+        private String username;
+        private String mensaje;
+    }
+}
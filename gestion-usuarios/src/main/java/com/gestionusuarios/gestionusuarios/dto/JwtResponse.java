@@ -16,6 +16,9 @@ public class JwtResponse {
     private String username;
     private String email;
     private List<String> roles;
+    // Segundos de validez del token de acceso
+    private Long expiresIn;
+    private String refreshToken;
 
     public JwtResponse(String accessToken, Long id, String username, String email, List<String> roles) {
         this.token = accessToken;
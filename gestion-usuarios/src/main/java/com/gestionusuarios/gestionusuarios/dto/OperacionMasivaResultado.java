@@ -0,0 +1,15 @@
+package com.gestionusuarios.gestionusuarios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacionMasivaResultado {
+
+    // Usuarios que cumplían la selección y filas que realmente cambiaron
+    private int seleccionados;
+    private int afectados;
+}
@@ -1,6 +1,8 @@
 package com.gestionusuarios.gestionusuarios.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -17,6 +19,7 @@ public class PerfilDTO {
 
     @NotBlank(message = "El nombre del perfil es obligatorio")
     @Size(min = 3, max = 50, message = "El nombre del perfil debe tener entre 3 y 50 caracteres")
+    @Pattern(regexp = "[^\\p{Cntrl}]*", message = "El nombre del perfil no puede contener caracteres de control")
     private String nombre;
 
     @Size(max = 255, message = "La descripción no puede exceder 255 caracteres")
@@ -24,4 +27,8 @@ public class PerfilDTO {
 
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaModificacion;
+
+    // Solo lectura: las escrituras condicionales envían la versión en If-Match
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.gestionusuarios.gestionusuarios.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Usuarios afectados por una operación masiva: una lista de ids, los que coinciden con
+ * un término de búsqueda o los que tienen un perfil. Debe indicarse exactamente uno.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeleccionUsuariosDTO {
+
+    private List<Long> ids;
+    private String searchTerm;
+    private String perfilNombre;
+
+    @JsonIgnore
+    @AssertTrue(message = "Debe indicarse exactamente uno de ids, searchTerm o perfilNombre")
+    public boolean isSeleccionValida() {
+        return Stream.of(ids != null && !ids.isEmpty(), searchTerm != null && !searchTerm.isBlank(),
+                perfilNombre != null && !perfilNombre.isBlank())
+            .filter(Boolean::booleanValue)
+            .count() == 1;
+    }
+}
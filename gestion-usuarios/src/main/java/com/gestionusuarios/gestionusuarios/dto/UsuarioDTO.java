@@ -1,5 +1,6 @@
 package com.gestionusuarios.gestionusuarios.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -40,4 +41,8 @@ public class UsuarioDTO {
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaModificacion;
     private Set<String> perfiles;
+
+    // Solo lectura: las escrituras condicionales envían la versión en If-Match
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
 }
\ No newline at end of file
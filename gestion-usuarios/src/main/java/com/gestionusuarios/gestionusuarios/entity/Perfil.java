@@ -2,10 +2,14 @@ package com.gestionusuarios.gestionusuarios.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -15,7 +19,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "perfiles")
+@Table(name = "perfiles", indexes = {
+    @Index(name = "idx_perfiles_fecha_creacion_id", columnList = "fecha_creacion, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,6 +34,7 @@ public class Perfil {
 
     @NotBlank(message = "El nombre del perfil es obligatorio")
     @Size(min = 3, max = 50, message = "El nombre del perfil debe tener entre 3 y 50 caracteres")
+    @Pattern(regexp = "[^\\p{Cntrl}]*", message = "El nombre del perfil no puede contener caracteres de control")
     @Column(unique = true, nullable = false)
     private String nombre;
 
@@ -41,6 +48,15 @@ public class Perfil {
     @LastModifiedDate
     private LocalDateTime fechaModificacion;
 
+    // Bloqueo optimista: cada UPDATE comprueba e incrementa la versión; también es el ETag del recurso
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    // Fuera de equals/hashCode/toString: recorrer la relación bidireccional durante la carga deja las colecciones vacías
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToMany(mappedBy = "perfiles")
     private Set<Usuario> usuarios = new HashSet<>();
 
@@ -0,0 +1,47 @@
+package com.gestionusuarios.gestionusuarios.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+    @Index(name = "idx_refresh_tokens_token_hash", columnList = "token_hash", unique = true),
+    @Index(name = "idx_refresh_tokens_usuario_id", columnList = "usuario_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    // Solo se guarda el SHA-256 del token; el valor en claro lo conoce únicamente el cliente
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    // Todos los tokens obtenidos por rotación a partir del mismo login comparten familia
+    @Column(nullable = false, length = 36)
+    private String familia;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaExpiracion;
+
+    @Column(nullable = false)
+    private Boolean revocado = false;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+}
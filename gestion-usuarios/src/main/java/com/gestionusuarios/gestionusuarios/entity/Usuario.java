@@ -6,7 +6,11 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -16,11 +20,15 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "usuarios")
+@Table(name = "usuarios", indexes = {
+    @Index(name = "idx_usuarios_fecha_creacion_id", columnList = "fecha_creacion, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
+// El UPDATE lleva solo las columnas modificadas (la edición más habitual cambia únicamente el nombre)
+@DynamicUpdate
 public class Usuario {
 
     @Id
@@ -60,7 +68,18 @@ public class Usuario {
     @LastModifiedDate
     private LocalDateTime fechaModificacion;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // Bloqueo optimista: cada UPDATE comprueba e incrementa la versión; también es el ETag del recurso.
+    // El valor por defecto cubre las filas existentes y las insertadas por JDBC en la importación
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    // Fuera de equals/hashCode/toString: recorrer la relación bidireccional durante la carga deja las colecciones vacías.
+    // Perezosa: cada consulta que necesita los perfiles los pide con @EntityGraph (ver UsuarioRepository)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "usuario_perfiles",
         joinColumns = @JoinColumn(name = "usuario_id"),
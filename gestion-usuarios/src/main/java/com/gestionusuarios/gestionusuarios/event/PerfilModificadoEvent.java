@@ -0,0 +1,17 @@
+package com.gestionusuarios.gestionusuarios.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PerfilModificadoEvent {
+
+    private final Long perfilId;
+    // Solo en los renombrados; null en altas, bajas y cambios que no afectan al nombre
+    private final String nombreAnterior;
+
+    public static PerfilModificadoEvent de(Long perfilId) {
+        return new PerfilModificadoEvent(perfilId, null);
+    }
+}
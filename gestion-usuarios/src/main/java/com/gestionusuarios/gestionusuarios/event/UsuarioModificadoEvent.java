@@ -0,0 +1,17 @@
+package com.gestionusuarios.gestionusuarios.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+@Getter
+@AllArgsConstructor
+public class UsuarioModificadoEvent {
+
+    private final Set<Long> usuarioIds;
+
+    public static UsuarioModificadoEvent de(Long usuarioId) {
+        return new UsuarioModificadoEvent(Set.of(usuarioId));
+    }
+}
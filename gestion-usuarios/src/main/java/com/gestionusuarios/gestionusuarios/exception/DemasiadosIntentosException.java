@@ -0,0 +1,19 @@
+package com.gestionusuarios.gestionusuarios.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class DemasiadosIntentosException extends RuntimeException {
+
+    private final long retryAfterSegundos;
+
+    public DemasiadosIntentosException(String message, long retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
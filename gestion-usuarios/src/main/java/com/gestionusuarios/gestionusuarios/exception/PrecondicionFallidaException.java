@@ -0,0 +1,16 @@
+package com.gestionusuarios.gestionusuarios.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PrecondicionFallidaException extends RuntimeException {
+
+    public PrecondicionFallidaException(String message) {
+        super(message);
+    }
+
+    public PrecondicionFallidaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
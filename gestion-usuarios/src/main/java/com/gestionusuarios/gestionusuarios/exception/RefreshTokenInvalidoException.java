@@ -0,0 +1,16 @@
+package com.gestionusuarios.gestionusuarios.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class RefreshTokenInvalidoException extends RuntimeException {
+
+    public RefreshTokenInvalidoException(String message) {
+        super(message);
+    }
+
+    public RefreshTokenInvalidoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
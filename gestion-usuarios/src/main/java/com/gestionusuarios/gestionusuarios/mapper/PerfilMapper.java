@@ -0,0 +1,14 @@
+package com.gestionusuarios.gestionusuarios.mapper;
+
+import com.gestionusuarios.gestionusuarios.dto.PerfilDTO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * Lecturas de perfiles con SQL propio (ver mapper/PerfilMapper.xml); se activa con app.persistence.perfiles=mybatis.
+ */
+@Mapper
+public interface PerfilMapper {
+
+    PerfilDTO buscarPorNombre(@Param("nombre") String nombre);
+}
@@ -0,0 +1,59 @@
+package com.gestionusuarios.gestionusuarios.mapper;
+
+import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.entity.Usuario;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.annotations.Param;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecturas calientes de usuarios con SQL propio (ver mapper/UsuarioMapper.xml). Los resultados
+ * no pasan por la sesión de Hibernate; se activa con app.persistence.usuarios=mybatis.
+ */
+@Mapper
+public interface UsuarioMapper {
+
+    // Propiedades de ordenación admitidas y su columna; el ORDER BY no puede ir como parámetro
+    Map<String, String> COLUMNAS_ORDEN = Map.of(
+            "id", "id",
+            "username", "username",
+            "email", "email",
+            "nombre", "nombre",
+            "apellidos", "apellidos",
+            "activo", "activo",
+            "fechaCreacion", "fecha_creacion",
+            "fechaModificacion", "fecha_modificacion");
+
+    // Usuario (con contraseña) y sus perfiles, para construir el UserPrincipal
+    Usuario buscarPorUsername(@Param("username") String username);
+
+    Usuario buscarPorId(@Param("id") Long id);
+
+    List<UsuarioDTO> listarPagina(@Param("orden") String orden, @Param("limite") int limite, @Param("offset") long offset);
+
+    long contar();
+
+    // Debe recorrerse dentro de una transacción: el cursor se cierra con ella
+    Cursor<UsuarioDTO> exportar(@Param("perfilNombre") String perfilNombre, @Param("activo") Boolean activo,
+                                @Param("searchTerm") String searchTerm);
+
+    default List<UsuarioDTO> listar(Pageable pageable) {
+        List<String> orden = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            String columna = COLUMNAS_ORDEN.get(order.getProperty());
+            if (columna == null) {
+                throw new IllegalArgumentException("Propiedad de ordenación no soportada: " + order.getProperty());
+            }
+            orden.add("u." + columna + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        // El id desempata para que el orden entre páginas sea estable
+        orden.add("u.id ASC");
+        return listarPagina(String.join(", ", orden), pageable.getPageSize(), pageable.getOffset());
+    }
+}
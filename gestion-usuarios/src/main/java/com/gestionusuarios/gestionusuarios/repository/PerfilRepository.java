@@ -8,12 +8,21 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PerfilRepository extends JpaRepository<Perfil, Long> {
 
     Optional<Perfil> findByNombre(String nombre);
+
+    List<Perfil> findByNombreIn(Collection<String> nombres);
+
+    // Paginación por cursor sobre el índice (fecha_creacion, id)
+    @Query("SELECT p FROM Perfil p WHERE p.fechaCreacion >= :fecha AND (p.fechaCreacion > :fecha OR p.id > :id) ORDER BY p.fechaCreacion, p.id")
+    List<Perfil> findDespuesDe(@Param("fecha") LocalDateTime fecha, @Param("id") Long id, Pageable pageable);
     
     Boolean existsByNombre(String nombre);
     
@@ -21,4 +30,14 @@ public interface PerfilRepository extends JpaRepository<Perfil, Long> {
            "LOWER(p.nombre) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(p.descripcion) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     Page<Perfil> searchPerfiles(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    // Modo trigram (app.search.modo): mismo filtro, apoyado en los índices GIN pg_trgm, ordenado por similitud
+    @Query(value = "SELECT p.* FROM perfiles p WHERE " +
+                   "LOWER(p.nombre) LIKE :patron OR LOWER(p.descripcion) LIKE :patron " +
+                   "ORDER BY GREATEST(similarity(LOWER(p.nombre), :termino), " +
+                   "similarity(LOWER(COALESCE(p.descripcion, '')), :termino)) DESC, p.id",
+           countQuery = "SELECT COUNT(*) FROM perfiles p WHERE " +
+                   "LOWER(p.nombre) LIKE :patron OR LOWER(p.descripcion) LIKE :patron",
+           nativeQuery = true)
+    Page<Perfil> searchPerfilesPorSimilitud(@Param("termino") String termino, @Param("patron") String patron, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.gestionusuarios.gestionusuarios.repository;
+
+import com.gestionusuarios.gestionusuarios.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revocado = true WHERE r.id = :id AND r.revocado = false")
+    int marcarUsado(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revocado = true WHERE r.familia = :familia AND r.revocado = false")
+    int revocarFamilia(@Param("familia") String familia);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revocado = true WHERE r.usuarioId = :usuarioId AND r.revocado = false")
+    int revocarPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revocado = true WHERE r.usuarioId IN :usuarioIds AND r.revocado = false")
+    int revocarPorUsuarios(@Param("usuarioIds") Collection<Long> usuarioIds);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.usuarioId = :usuarioId")
+    int eliminarPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.fechaExpiracion < :fecha")
+    int eliminarExpirados(@Param("fecha") LocalDateTime fecha);
+}
@@ -3,31 +3,184 @@ package com.gestionusuarios.gestionusuarios.repository;
 import com.gestionusuarios.gestionusuarios.entity.Usuario;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
+    @EntityGraph(attributePaths = "perfiles")
     Optional<Usuario> findByUsername(String username);
+
+    @EntityGraph(attributePaths = "perfiles")
+    Optional<Usuario> findConPerfilesById(Long id);
+
+    // Segunda fase de los listados: perfiles de toda la página en una sola consulta
+    @EntityGraph(attributePaths = "perfiles")
+    List<Usuario> findConPerfilesByIdIn(Collection<Long> ids);
     
     Optional<Usuario> findByEmail(String email);
     
     Boolean existsByUsername(String username);
     
     Boolean existsByEmail(String email);
+
+    // Comprobación de unicidad por lotes en la importación masiva
+    @Query("SELECT u.username FROM Usuario u WHERE u.username IN :usernames")
+    List<String> findUsernamesExistentes(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.email FROM Usuario u WHERE u.email IN :emails")
+    List<String> findEmailsExistentes(@Param("emails") Collection<String> emails);
+
+    // Otros usuarios que ya usan el username o el email: ambas comprobaciones de unicidad en una consulta
+    @Query("SELECT u FROM Usuario u WHERE (u.username = :username OR u.email = :email) AND u.id <> :excluirId")
+    List<Usuario> findConflictos(@Param("username") String username, @Param("email") String email,
+                                 @Param("excluirId") Long excluirId);
     
-    @Query("SELECT u FROM Usuario u WHERE " +
+    String SELECT_RESUMEN = "SELECT u.id AS id, u.username AS username, u.email AS email, u.nombre AS nombre, " +
+           "u.apellidos AS apellidos, u.activo AS activo, u.fechaCreacion AS fechaCreacion, " +
+           "u.fechaModificacion AS fechaModificacion, u.version AS version, " +
+           "LISTAGG(p.nombre, '" + UsuarioResumen.SEPARADOR_PERFILES + "') WITHIN GROUP (ORDER BY p.nombre) AS perfiles " +
+           "FROM Usuario u LEFT JOIN u.perfiles p ";
+
+    String GROUP_BY_RESUMEN = " GROUP BY u.id, u.username, u.email, u.nombre, u.apellidos, u.activo, " +
+           "u.fechaCreacion, u.fechaModificacion, u.version";
+
+    @Query(SELECT_RESUMEN + "WHERE u.id = :id" + GROUP_BY_RESUMEN)
+    Optional<UsuarioResumen> findResumenById(@Param("id") Long id);
+
+    @Query(SELECT_RESUMEN + "WHERE u.username = :username" + GROUP_BY_RESUMEN)
+    Optional<UsuarioResumen> findResumenByUsername(@Param("username") String username);
+
+    // Segunda fase de los listados: columnas del DTO y perfiles agregados de toda la página en una sola consulta
+    @Query(SELECT_RESUMEN + "WHERE u.id IN :ids" + GROUP_BY_RESUMEN)
+    List<UsuarioResumen> findResumenByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Primera fase de los listados: solo los ids de la página, sin tocar la tabla de perfiles
+    @Query("SELECT u.id FROM Usuario u")
+    Page<Long> findIds(Pageable pageable);
+
+    @Query("SELECT u.id FROM Usuario u WHERE " +
            "LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(u.nombre) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(u.apellidos) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Usuario> searchUsuarios(@Param("searchTerm") String searchTerm, Pageable pageable);
-    
-    @Query("SELECT u FROM Usuario u JOIN u.perfiles p WHERE p.nombre = :perfilNombre")
-    Page<Usuario> findByPerfilNombre(@Param("perfilNombre") String perfilNombre, Pageable pageable);
+    Page<Long> searchIds(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    // Modo trigram (app.search.modo): mismo filtro, apoyado en los índices GIN pg_trgm, ordenado por similitud
+    @Query(value = "SELECT u.id FROM usuarios u WHERE " +
+                   "LOWER(u.username) LIKE :patron OR LOWER(u.nombre) LIKE :patron OR " +
+                   "LOWER(u.apellidos) LIKE :patron OR LOWER(u.email) LIKE :patron " +
+                   "ORDER BY GREATEST(similarity(LOWER(u.username), :termino), similarity(LOWER(u.nombre), :termino), " +
+                   "similarity(LOWER(COALESCE(u.apellidos, '')), :termino), similarity(LOWER(u.email), :termino)) DESC, u.id",
+           countQuery = "SELECT COUNT(*) FROM usuarios u WHERE " +
+                   "LOWER(u.username) LIKE :patron OR LOWER(u.nombre) LIKE :patron OR " +
+                   "LOWER(u.apellidos) LIKE :patron OR LOWER(u.email) LIKE :patron",
+           nativeQuery = true)
+    Page<Long> searchIdsPorSimilitud(@Param("termino") String termino, @Param("patron") String patron, Pageable pageable);
+
+    // EXISTS en lugar de JOIN para no repetir filas ni inflar el count
+    @Query("SELECT u.id FROM Usuario u WHERE EXISTS " +
+           "(SELECT 1 FROM u.perfiles p WHERE p.nombre = :perfilNombre)")
+    Page<Long> findIdsByPerfilNombre(@Param("perfilNombre") String perfilNombre, Pageable pageable);
+
+    boolean existsByPerfilesId(Long perfilId);
+
+    // Paginación por cursor: la página empieza tras (fecha, id) en el índice (fecha_creacion, id), sin OFFSET.
+    // El ">= :fecha" redundante delimita el rango del índice; el resto descarta los empates anteriores
+    @Query("SELECT u.id FROM Usuario u WHERE u.fechaCreacion >= :fecha AND (u.fechaCreacion > :fecha OR u.id > :id) " +
+           "ORDER BY u.fechaCreacion, u.id")
+    List<Long> findIdsDespuesDe(@Param("fecha") LocalDateTime fecha, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT u.id FROM Usuario u WHERE u.fechaCreacion >= :fecha AND (u.fechaCreacion > :fecha OR u.id > :id) AND (" +
+           "LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.nombre) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.apellidos) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
+           "ORDER BY u.fechaCreacion, u.id")
+    List<Long> searchIdsDespuesDe(@Param("searchTerm") String searchTerm, @Param("fecha") LocalDateTime fecha,
+                                  @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT u.id FROM Usuario u WHERE u.fechaCreacion >= :fecha AND (u.fechaCreacion > :fecha OR u.id > :id) AND EXISTS " +
+           "(SELECT 1 FROM u.perfiles p WHERE p.nombre = :perfilNombre) " +
+           "ORDER BY u.fechaCreacion, u.id")
+    List<Long> findIdsByPerfilNombreDespuesDe(@Param("perfilNombre") String perfilNombre, @Param("fecha") LocalDateTime fecha,
+                                              @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT COUNT(u) FROM Usuario u WHERE " +
+           "LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.nombre) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.apellidos) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    long countSearch(@Param("searchTerm") String searchTerm);
+
+    @Query("SELECT COUNT(u) FROM Usuario u WHERE EXISTS " +
+           "(SELECT 1 FROM u.perfiles p WHERE p.nombre = :perfilNombre)")
+    long countByPerfilNombre(@Param("perfilNombre") String perfilNombre);
+
+    // Selección completa para operaciones masivas (solo ids, sin paginar)
+    @Query("SELECT u.id FROM Usuario u WHERE " +
+           "LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.nombre) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.apellidos) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    List<Long> findAllIdsBySearch(@Param("searchTerm") String searchTerm);
+
+    @Query("SELECT u.id FROM Usuario u WHERE EXISTS " +
+           "(SELECT 1 FROM u.perfiles p WHERE p.nombre = :perfilNombre)")
+    List<Long> findAllIdsByPerfilNombre(@Param("perfilNombre") String perfilNombre);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Usuario u SET u.activo = :activo, u.fechaModificacion = :fecha, u.version = u.version + 1 " +
+           "WHERE u.id IN :ids AND u.activo <> :activo")
+    int actualizarActivo(@Param("ids") Collection<Long> ids, @Param("activo") boolean activo,
+                         @Param("fecha") LocalDateTime fecha);
+
+    // Las asignaciones masivas cambian la representación del usuario: nueva versión (ETag) y fecha de modificación
+    // para los que van a recibir el perfil (antes del INSERT) o a perderlo (antes del DELETE)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE usuarios SET version = version + 1, fecha_modificacion = :fecha WHERE id IN (:ids) AND NOT EXISTS " +
+                   "(SELECT 1 FROM usuario_perfiles up WHERE up.usuario_id = usuarios.id AND up.perfil_id = :perfilId)",
+           nativeQuery = true)
+    int incrementarVersionSinPerfil(@Param("ids") Collection<Long> ids, @Param("perfilId") Long perfilId,
+                                    @Param("fecha") LocalDateTime fecha);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE usuarios SET version = version + 1, fecha_modificacion = :fecha WHERE id IN (:ids) AND EXISTS " +
+                   "(SELECT 1 FROM usuario_perfiles up WHERE up.usuario_id = usuarios.id AND up.perfil_id = :perfilId)",
+           nativeQuery = true)
+    int incrementarVersionConPerfil(@Param("ids") Collection<Long> ids, @Param("perfilId") Long perfilId,
+                                    @Param("fecha") LocalDateTime fecha);
+
+    // Renombrar un perfil cambia la representación de todos sus usuarios
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE usuarios SET version = version + 1, fecha_modificacion = :fecha WHERE id IN " +
+                   "(SELECT up.usuario_id FROM usuario_perfiles up WHERE up.perfil_id = :perfilId)",
+           nativeQuery = true)
+    int incrementarVersionPorPerfil(@Param("perfilId") Long perfilId, @Param("fecha") LocalDateTime fecha);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO usuario_perfiles (usuario_id, perfil_id) " +
+                   "SELECT u.id, :perfilId FROM usuarios u WHERE u.id IN (:ids) AND NOT EXISTS " +
+                   "(SELECT 1 FROM usuario_perfiles up WHERE up.usuario_id = u.id AND up.perfil_id = :perfilId)",
+           nativeQuery = true)
+    int asignarPerfil(@Param("ids") Collection<Long> ids, @Param("perfilId") Long perfilId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM usuario_perfiles WHERE perfil_id = :perfilId AND usuario_id IN (:ids)",
+           nativeQuery = true)
+    int removerPerfil(@Param("ids") Collection<Long> ids, @Param("perfilId") Long perfilId);
+
+    @Modifying
+    @Query("UPDATE Usuario u SET u.password = :password WHERE u.id = :id")
+    int actualizarPassword(@Param("id") Long id, @Param("password") String password);
 }
\ No newline at end of file
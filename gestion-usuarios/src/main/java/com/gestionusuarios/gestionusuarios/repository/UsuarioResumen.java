@@ -0,0 +1,35 @@
+package com.gestionusuarios.gestionusuarios.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de solo lectura con las columnas de UsuarioDTO: no incluye la contraseña
+ * y los nombres de perfil llegan agregados en una sola columna.
+ */
+public interface UsuarioResumen {
+
+    // Carácter de control (separador de unidad): la validación lo prohíbe en los nombres de perfil,
+    // a diferencia de la coma, así que partir la columna agregada no puede inventar perfiles
+    String SEPARADOR_PERFILES = "\u001F";
+
+    Long getId();
+
+    String getUsername();
+
+    String getEmail();
+
+    String getNombre();
+
+    String getApellidos();
+
+    Boolean getActivo();
+
+    LocalDateTime getFechaCreacion();
+
+    LocalDateTime getFechaModificacion();
+
+    Long getVersion();
+
+    // Nombres de perfil separados por SEPARADOR_PERFILES; null si el usuario no tiene perfiles
+    String getPerfiles();
+}
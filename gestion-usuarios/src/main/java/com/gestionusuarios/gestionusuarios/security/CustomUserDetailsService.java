@@ -1,47 +1,86 @@
 package com.gestionusuarios.gestionusuarios.security;
 
+import com.gestionusuarios.gestionusuarios.config.ConsistenciaLecturas;
 import com.gestionusuarios.gestionusuarios.entity.Usuario;
+import com.gestionusuarios.gestionusuarios.mapper.UsuarioMapper;
 import com.gestionusuarios.gestionusuarios.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private UsuarioMapper usuarioMapper;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    // jpa o mybatis (SQL propio sin pasar por la sesión de Hibernate)
+    @Value("${app.persistence.usuarios:jpa}")
+    private String persistenciaUsuarios;
+
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Usuario usuario = usuarioRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con username: " + username));
-
-        List<GrantedAuthority> authorities = usuario.getPerfiles().stream()
-                .map(perfil -> new SimpleGrantedAuthority("ROLE_" + perfil.getNombre().toUpperCase()))
-                .collect(Collectors.toList());
+        return userDetailsCache.obtenerPorUsername(username,
+                clave -> ConsistenciaLecturas.enPrimario(() -> cargarPorUsername(clave)));
+    }
 
-        return UserPrincipal.create(usuario, authorities);
+    public UserDetails loadUserById(Long id) {
+        return userDetailsCache.obtenerPorId(id, clave -> ConsistenciaLecturas.enPrimario(() -> cargarPorId(clave)));
     }
 
+    @Override
     @Transactional
-    public UserDetails loadUserById(Long id) {
-        Usuario usuario = usuarioRepository.findById(id)
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserPrincipal principal = (UserPrincipal) user;
+        usuarioRepository.actualizarPassword(principal.getId(), newPassword);
+        userDetailsCache.evictarUsuarios(List.of(principal.getId()));
+
+        return new UserPrincipal(principal.getId(), principal.getUsername(), principal.getEmail(),
+                newPassword, principal.getAuthorities(), principal.isEnabled());
+    }
+
+    private UserPrincipal cargarPorUsername(String username) {
+        Usuario usuario = (usarMyBatis()
+                ? Optional.ofNullable(usuarioMapper.buscarPorUsername(username))
+                : usuarioRepository.findByUsername(username))
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con username: " + username));
+        return crearPrincipal(usuario);
+    }
+
+    private UserPrincipal cargarPorId(Long id) {
+        Usuario usuario = (usarMyBatis()
+                ? Optional.ofNullable(usuarioMapper.buscarPorId(id))
+                : usuarioRepository.findConPerfilesById(id))
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con id: " + id));
+        return crearPrincipal(usuario);
+    }
+
+    private boolean usarMyBatis() {
+        return "mybatis".equalsIgnoreCase(persistenciaUsuarios);
+    }
 
+    private UserPrincipal crearPrincipal(Usuario usuario) {
         List<GrantedAuthority> authorities = usuario.getPerfiles().stream()
                 .map(perfil -> new SimpleGrantedAuthority("ROLE_" + perfil.getNombre().toUpperCase()))
                 .collect(Collectors.toList());
 
         return UserPrincipal.create(usuario, authorities);
     }
-}
\ No newline at end of file
+}
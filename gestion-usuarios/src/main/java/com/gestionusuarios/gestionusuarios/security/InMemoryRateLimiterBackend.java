@@ -0,0 +1,69 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ventana deslizante aproximada (contador de la ventana actual más la parte proporcional
+ * de la anterior) por clave. Cada clave tiene su propio monitor, de modo que solo compiten
+ * los intentos sobre la misma clave; las claves inactivas se expulsan de la caché.
+ */
+@Component
+public class InMemoryRateLimiterBackend implements RateLimiterBackend {
+
+    @Value("${app.login.rate-limit.max-keys:100000}")
+    private long maxClaves;
+
+    @Value("${app.login.rate-limit.idle-expiration:600000}")
+    private long expiracionInactivasMs;
+
+    private Cache<String, Ventana> ventanas;
+
+    @PostConstruct
+    public void init() {
+        ventanas = Caffeine.newBuilder()
+                .maximumSize(maxClaves)
+                .expireAfterAccess(Duration.ofMillis(expiracionInactivasMs))
+                .build();
+    }
+
+    @Override
+    public long intentar(String clave, int limite, long ventanaMs) {
+        return ventanas.get(clave, k -> new Ventana(System.currentTimeMillis()))
+                .intentar(System.currentTimeMillis(), limite, ventanaMs);
+    }
+
+    private static final class Ventana {
+
+        private long inicio;
+        private int actual;
+        private int anterior;
+
+        private Ventana(long inicio) {
+            this.inicio = inicio;
+        }
+
+        private synchronized long intentar(long ahora, int limite, long ventanaMs) {
+            long transcurrido = ahora - inicio;
+            if (transcurrido >= ventanaMs) {
+                anterior = transcurrido >= 2 * ventanaMs ? 0 : actual;
+                actual = 0;
+                inicio = ahora - (transcurrido % ventanaMs);
+                transcurrido = ahora - inicio;
+            }
+
+            double pesoAnterior = (double) (ventanaMs - transcurrido) / ventanaMs;
+            if (anterior * pesoAnterior + actual >= limite) {
+                return ventanaMs - transcurrido;
+            }
+
+            actual++;
+            return 0;
+        }
+    }
+}
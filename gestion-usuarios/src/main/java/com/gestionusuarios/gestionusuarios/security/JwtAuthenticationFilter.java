@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,6 +14,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Date;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
@@ -22,6 +24,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+
+    // Antigüedad máxima de los claims antes de volver a cargar el usuario desde la base de datos
+    @Value("${app.jwt.stateless.max-age:300000}")
+    private long statelessMaxAgeInMs;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -29,20 +38,40 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = obtenerTokenDeRequest(request);
 
-        if (StringUtils.hasText(token) && tokenProvider.validarToken(token)) {
-            String username = tokenProvider.obtenerUsernameDeToken(token);
+        TokenVerificado verificado = StringUtils.hasText(token)
+                ? tokenProvider.verificarToken(token).orElse(null)
+                : null;
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            UsernamePasswordAuthenticationToken authentication = 
-                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        if (verificado != null) {
+            UserDetails userDetails = tokenProvider.isStatelessEnabled() && verificado.contieneIdentidad()
+                    ? resolverUsuarioStateless(verificado)
+                    : userDetailsService.loadUserByUsername(verificado.getUsername());
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (userDetails != null && userDetails.isEnabled()) {
+                UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolverUsuarioStateless(TokenVerificado verificado) {
+        Date emitidoEn = verificado.getEmitidoEn();
+        if (revocationRegistry.estaRevocado(verificado.getUsuarioId(), emitidoEn)) {
+            return null;
+        }
+
+        if (emitidoEn == null || System.currentTimeMillis() - emitidoEn.getTime() > statelessMaxAgeInMs) {
+            return userDetailsService.loadUserById(verificado.getUsuarioId());
+        }
+
+        return verificado.crearPrincipal();
+    }
+
     private String obtenerTokenDeRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
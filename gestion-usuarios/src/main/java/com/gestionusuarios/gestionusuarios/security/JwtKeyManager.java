@@ -0,0 +1,179 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import io.jsonwebtoken.security.InvalidKeyException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Claves RSA para firmar (RS256) y verificar tokens. Además de la clave de firma activa
+ * se publican las claves de verificación configuradas, de modo que una rotación consiste en:
+ * publicar la nueva clave como clave de verificación, esperar a que caduque la caché del JWKS,
+ * pasar a firmar con ella y retirar la anterior cuando hayan expirado sus tokens.
+ */
+@Component
+public class JwtKeyManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyManager.class);
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${app.jwt.algoritmo:hmac}")
+    private String algoritmo;
+
+    @Value("${app.jwt.rsa.signing-key:}")
+    private String signingKeyLocation;
+
+    @Value("${app.jwt.rsa.signing-kid:}")
+    private String signingKid;
+
+    // Lista kid=ubicación de claves públicas PEM separadas por comas
+    @Value("${app.jwt.rsa.verification-keys:}")
+    private String verificationKeys;
+
+    private PrivateKey claveFirma;
+    private String kidFirma;
+    private Map<String, PublicKey> clavesVerificacion = Map.of();
+    private Map<String, Object> jwks = Map.of("keys", List.of());
+    private String jwksEtag;
+
+    @PostConstruct
+    public void init() throws IOException, GeneralSecurityException {
+        if (isAsimetrico()) {
+            Map<String, PublicKey> claves = new LinkedHashMap<>();
+
+            if (StringUtils.hasText(signingKeyLocation)) {
+                claveFirma = KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(leerPem(signingKeyLocation)));
+                RSAPrivateCrtKey crt = (RSAPrivateCrtKey) claveFirma;
+                PublicKey publica = KeyFactory.getInstance("RSA")
+                        .generatePublic(new RSAPublicKeySpec(crt.getModulus(), crt.getPublicExponent()));
+                kidFirma = StringUtils.hasText(signingKid) ? signingKid : calcularKid(publica);
+                claves.put(kidFirma, publica);
+            } else {
+                // Solo para desarrollo: cada arranque (y cada réplica) tendría una clave distinta
+                logger.warn("app.jwt.rsa.signing-key no configurada: se genera una clave RSA efímera");
+                KeyPairGenerator generador = KeyPairGenerator.getInstance("RSA");
+                generador.initialize(2048);
+                KeyPair par = generador.generateKeyPair();
+                claveFirma = par.getPrivate();
+                kidFirma = UUID.randomUUID().toString();
+                claves.put(kidFirma, par.getPublic());
+            }
+
+            if (StringUtils.hasText(verificationKeys)) {
+                for (String entrada : verificationKeys.split(",")) {
+                    String[] partes = entrada.trim().split("=", 2);
+                    if (partes.length != 2) {
+                        throw new IllegalStateException("Formato kid=ubicación esperado en app.jwt.rsa.verification-keys: " + entrada);
+                    }
+                    claves.putIfAbsent(partes[0].trim(), KeyFactory.getInstance("RSA")
+                            .generatePublic(new X509EncodedKeySpec(leerPem(partes[1].trim()))));
+                }
+            }
+
+            clavesVerificacion = Map.copyOf(claves);
+            jwks = construirJwks(claves);
+        }
+        jwksEtag = "\"" + HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(jwks.toString().getBytes(StandardCharsets.UTF_8))) + "\"";
+    }
+
+    public boolean isAsimetrico() {
+        return "rs256".equalsIgnoreCase(algoritmo);
+    }
+
+    public PrivateKey getClaveFirma() {
+        return claveFirma;
+    }
+
+    public String getKidFirma() {
+        return kidFirma;
+    }
+
+    public PublicKey obtenerClaveVerificacion(String kid) {
+        PublicKey clave = kid == null ? null : clavesVerificacion.get(kid);
+        if (clave == null) {
+            throw new InvalidKeyException("Clave de verificación desconocida (kid=" + kid + ")");
+        }
+        return clave;
+    }
+
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    public String getJwksEtag() {
+        return jwksEtag;
+    }
+
+    private Map<String, Object> construirJwks(Map<String, PublicKey> claves) {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        claves.forEach((kid, clave) -> {
+            RSAPublicKey rsa = (RSAPublicKey) clave;
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "RSA");
+            jwk.put("use", "sig");
+            jwk.put("alg", "RS256");
+            jwk.put("kid", kid);
+            jwk.put("n", base64Url(rsa.getModulus()));
+            jwk.put("e", base64Url(rsa.getPublicExponent()));
+            keys.add(jwk);
+        });
+        return Map.of("keys", List.copyOf(keys));
+    }
+
+    private String base64Url(BigInteger valor) {
+        byte[] bytes = valor.toByteArray();
+        // toByteArray añade un byte de signo que no forma parte del valor JWK
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] sinSigno = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, sinSigno, 0, sinSigno.length);
+            bytes = sinSigno;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private String calcularKid(PublicKey clave) throws GeneralSecurityException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(clave.getEncoded());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 16);
+    }
+
+    private byte[] leerPem(String ubicacion) throws IOException {
+        try (InputStream in = resourceLoader.getResource(ubicacion).getInputStream()) {
+            String pem = new String(in.readAllBytes(), StandardCharsets.US_ASCII)
+                    .replaceAll("-----(BEGIN|END) [A-Z ]+-----", "")
+                    .replaceAll("\\s", "");
+            return Base64.getDecoder().decode(pem);
+        }
+    }
+}
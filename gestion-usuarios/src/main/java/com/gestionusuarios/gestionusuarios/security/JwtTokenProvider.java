@@ -1,69 +1,224 @@
 package com.gestionusuarios.gestionusuarios.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
 
+    @Autowired
+    private TokenValidationMonitor validationMonitor;
+
+    @Autowired
+    private JwtKeyManager keyManager;
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration}")
     private int jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${app.jwt.stateless.enabled:false}")
+    private boolean statelessEnabled;
+
+    @Value("${app.jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    private static final String CLAIM_USUARIO_ID = "uid";
+    private static final String CLAIM_EMAIL = "email";
+    private static final String CLAIM_ROLES = "roles";
+    // iat solo tiene resolución de segundos; la revocación compara con este instante en milisegundos
+    private static final String CLAIM_EMITIDO_MS = "iat_ms";
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Tokens ya verificados, indexados por su digest SHA-256 y válidos hasta su exp
+    private Cache<String, TokenVerificado> tokensVerificados;
+
+    @PostConstruct
+    public void init() {
+        if (keyManager.isAsimetrico()) {
+            // La clave de verificación se elige por el kid de la cabecera para admitir varias durante una rotación
+            parser = Jwts.parser()
+                    .keyLocator(new LocatorAdapter<Key>() {
+                        @Override
+                        protected Key locate(JwsHeader header) {
+                            return keyManager.obtenerClaveVerificacion(header.getKeyId());
+                        }
+                    })
+                    .build();
+        } else {
+            signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+            parser = Jwts.parser()
+                    .verifyWith(signingKey)
+                    .build();
+        }
+        tokensVerificados = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, TokenVerificado>() {
+                    @Override
+                    public long expireAfterCreate(String digest, TokenVerificado verificado, long currentTime) {
+                        long restanteMs = verificado.getExpiraEn().getTime() - System.currentTimeMillis();
+                        return Math.max(0, restanteMs) * 1_000_000L;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, TokenVerificado verificado,
+                                                  long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, TokenVerificado verificado,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     public String generarToken(Authentication authentication) {
-        String username = authentication.getName();
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return generarToken(principal);
+        }
+        return construirToken(authentication.getName(), null);
+    }
+
+    public String generarToken(UserPrincipal principal) {
+        return construirToken(principal.getUsername(), principal);
+    }
+
+    public long getJwtExpirationInMs() {
+        return jwtExpirationInMs;
+    }
+
+    private String construirToken(String username, UserPrincipal principal) {
         Date fechaActual = new Date();
         Date fechaExpiracion = new Date(fechaActual.getTime() + jwtExpirationInMs);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(fechaActual)
-                .setExpiration(fechaExpiracion)
-                .signWith(getSigningKey())
-                .compact();
+                .setExpiration(fechaExpiracion);
+
+        // En modo stateless el token lleva la identidad completa para no consultar la base de datos
+        if (statelessEnabled && principal != null) {
+            builder.claim(CLAIM_USUARIO_ID, principal.getId())
+                    .claim(CLAIM_EMITIDO_MS, fechaActual.getTime())
+                    .claim(CLAIM_EMAIL, principal.getEmail())
+                    .claim(CLAIM_ROLES, principal.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .collect(Collectors.toList()));
+        }
+
+        if (keyManager.isAsimetrico()) {
+            return builder.header().keyId(keyManager.getKidFirma()).and()
+                    .signWith(keyManager.getClaveFirma(), Jwts.SIG.RS256)
+                    .compact();
+        }
+        return builder.signWith(signingKey).compact();
     }
 
-    public String obtenerUsernameDeToken(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
-//    	Jwts.parser().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();    	
-//    	return "admin";
+    public boolean isStatelessEnabled() {
+        return statelessEnabled;
     }
 
-    public boolean validarToken(String token) {
+    /**
+     * Verifica firma y expiración una sola vez y devuelve los claims tipados,
+     * o vacío si el token no es válido.
+     */
+    public Optional<TokenVerificado> verificarToken(String token) {
+        if (token == null || token.isBlank()) {
+            validationMonitor.registrarFallo(MotivoRechazoToken.VACIO, null);
+            return Optional.empty();
+        }
+
+        String digest = calcularDigest(token);
+        TokenVerificado verificado = tokensVerificados.getIfPresent(digest);
+        if (verificado != null) {
+            return Optional.of(verificado);
+        }
+
         try {
-            Jwts.parser()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (SecurityException ex) {
-            System.err.println("Firma JWT inválida");
-        } catch (MalformedJwtException ex) {
-            System.err.println("Token JWT inválido");
+            verificado = crearTokenVerificado(parser.parseSignedClaims(token).getPayload());
+        } catch (io.jsonwebtoken.security.SecurityException ex) {
+            validationMonitor.registrarFallo(MotivoRechazoToken.FIRMA, ex.getMessage());
+            return Optional.empty();
         } catch (ExpiredJwtException ex) {
-            System.err.println("Token JWT expirado");
+            validationMonitor.registrarFallo(MotivoRechazoToken.EXPIRADO, ex.getMessage());
+            return Optional.empty();
         } catch (UnsupportedJwtException ex) {
-            System.err.println("Token JWT no soportado");
+            validationMonitor.registrarFallo(MotivoRechazoToken.NO_SOPORTADO, ex.getMessage());
+            return Optional.empty();
+        } catch (JwtException ex) {
+            validationMonitor.registrarFallo(MotivoRechazoToken.MALFORMADO, ex.getMessage());
+            return Optional.empty();
         } catch (IllegalArgumentException ex) {
-            System.err.println("Claims del JWT vacío");
+            validationMonitor.registrarFallo(MotivoRechazoToken.VACIO, ex.getMessage());
+            return Optional.empty();
+        }
+
+        if (verificado.getExpiraEn() != null) {
+            tokensVerificados.put(digest, verificado);
+        }
+        return Optional.of(verificado);
+    }
+
+    public String obtenerUsernameDeToken(String token) {
+        return verificarToken(token)
+                .map(TokenVerificado::getUsername)
+                .orElseThrow(() -> new MalformedJwtException("Token JWT inválido"));
+    }
+
+    public boolean validarToken(String token) {
+        return verificarToken(token).isPresent();
+    }
+
+    private TokenVerificado crearTokenVerificado(Claims claims) {
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(rol -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(rol)))
+                .collect(Collectors.toUnmodifiableList());
+        Long emitidoMs = claims.get(CLAIM_EMITIDO_MS, Long.class);
+
+        return new TokenVerificado(
+                claims.getSubject(),
+                claims.get(CLAIM_USUARIO_ID, Long.class),
+                claims.get(CLAIM_EMAIL, String.class),
+                authorities,
+                emitidoMs != null ? new Date(emitidoMs) : claims.getIssuedAt(),
+                claims.getExpiration()
+        );
+    }
+
+    private String calcularDigest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import com.gestionusuarios.gestionusuarios.exception.LoginSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta la verificación de contraseñas en un pool acotado para que una avalancha de
+ * logins no ocupe los hilos de Tomcat que atienden el resto de la API: la petición se
+ * procesa de forma asíncrona y ningún hilo de Tomcat espera al hash. Los logins que no
+ * caben en la cola, o que no empiezan antes de su plazo, se rechazan con 503 y Retry-After.
+ */
+@Component
+public class LoginExecutor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.login.pool.size:0}")
+    private int poolSize;
+
+    @Value("${app.login.pool.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.login.pool.max-wait:2000}")
+    private long maxWaitInMs;
+
+    @Value("${app.login.pool.retry-after:2}")
+    private long retryAfterSegundos;
+
+    private ThreadPoolExecutor executor;
+    private Timer tiempoEnCola;
+    private Counter rechazosColaLlena;
+    private Counter rechazosPlazo;
+
+    @PostConstruct
+    public void init() {
+        int hilos = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "login-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("login.queue.depth", executor, e -> e.getQueue().size())
+                .description("Logins en espera de verificación de contraseña")
+                .register(meterRegistry);
+        Gauge.builder("login.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Verificaciones de contraseña en curso")
+                .register(meterRegistry);
+        tiempoEnCola = Timer.builder("login.queue.wait")
+                .description("Tiempo de espera en cola antes de verificar la contraseña")
+                .register(meterRegistry);
+        rechazosColaLlena = Counter.builder("login.rejected").tag("reason", "queue_full").register(meterRegistry);
+        rechazosPlazo = Counter.builder("login.rejected").tag("reason", "deadline").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Encola la verificación y devuelve un futuro: el hilo de Tomcat queda libre mientras espera.
+     * El plazo max-wait solo cuenta hasta que la tarea empieza; un hash ya iniciado se completa
+     * siempre, porque cortarlo no libera el hilo del pool y el cliente solo vería un 503 tardío.
+     */
+    public CompletableFuture<Authentication> autenticar(Supplier<Authentication> autenticacion) {
+        long encoladoEn = System.nanoTime();
+        long plazo = encoladoEn + TimeUnit.MILLISECONDS.toNanos(maxWaitInMs);
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long inicio = System.nanoTime();
+                tiempoEnCola.record(inicio - encoladoEn, TimeUnit.NANOSECONDS);
+                // Si el plazo venció en la cola no se gasta CPU en un hash que el cliente ya no espera
+                if (inicio - plazo > 0) {
+                    rechazosPlazo.increment();
+                    throw saturado();
+                }
+                return autenticacion.get();
+            }, executor);
+        } catch (RejectedExecutionException ex) {
+            rechazosColaLlena.increment();
+            throw saturado();
+        }
+    }
+
+    private LoginSaturadoException saturado() {
+        return new LoginSaturadoException("Demasiados inicios de sesión simultáneos. Inténtelo de nuevo más tarde.",
+                retryAfterSegundos);
+    }
+}
@@ -0,0 +1,122 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import com.gestionusuarios.gestionusuarios.exception.DemasiadosIntentosException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Limita los intentos de login por cliente (IP) y por username antes de verificar la
+ * contraseña, para que el relleno de credenciales no cueste un hash por intento.
+ */
+@Component
+public class LoginRateLimiter {
+
+    @Autowired
+    private RateLimiterBackend backend;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.login.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.login.rate-limit.per-ip.limit:20}")
+    private int limitePorIp;
+
+    @Value("${app.login.rate-limit.per-ip.window:60000}")
+    private long ventanaPorIpMs;
+
+    @Value("${app.login.rate-limit.per-username.limit:5}")
+    private int limitePorUsername;
+
+    @Value("${app.login.rate-limit.per-username.window:60000}")
+    private long ventanaPorUsernameMs;
+
+    // Solo se activa detrás de nuestro nginx (perfil nginx). Aun así, X-Forwarded-For solo se lee en las conexiones
+    // que llegan desde trusted-proxies (IP o CIDR): quien conecte directamente al puerto publicado no puede elegir su IP
+    @Value("${app.login.rate-limit.trust-forwarded-for:false}")
+    private boolean confiarEnForwardedFor;
+
+    @Value("${app.login.rate-limit.trusted-proxies:}")
+    private List<String> proxiesConfiables;
+
+    private List<IpAddressMatcher> proxies;
+    private Counter rechazosPorIp;
+    private Counter rechazosPorUsername;
+
+    @PostConstruct
+    public void init() {
+        proxies = proxiesConfiables.stream()
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .map(IpAddressMatcher::new)
+                .toList();
+        rechazosPorIp = Counter.builder("login.throttled").tag("key", "ip").register(meterRegistry);
+        rechazosPorUsername = Counter.builder("login.throttled").tag("key", "username").register(meterRegistry);
+    }
+
+    public void verificar(String username, HttpServletRequest request) {
+        if (!enabled) {
+            return;
+        }
+
+        long esperaMs = backend.intentar("ip:" + obtenerIpCliente(request), limitePorIp, ventanaPorIpMs);
+        if (esperaMs > 0) {
+            rechazosPorIp.increment();
+            throw demasiadosIntentos(esperaMs);
+        }
+
+        if (username != null) {
+            esperaMs = backend.intentar("u:" + username.toLowerCase(Locale.ROOT), limitePorUsername, ventanaPorUsernameMs);
+            if (esperaMs > 0) {
+                rechazosPorUsername.increment();
+                throw demasiadosIntentos(esperaMs);
+            }
+        }
+    }
+
+    private String obtenerIpCliente(HttpServletRequest request) {
+        String remota = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (!confiarEnForwardedFor || !esProxyConfiable(remota) || !StringUtils.hasText(forwardedFor)) {
+            return remota;
+        }
+        // nginx añade al final la dirección desde la que recibió la conexión; la primera entrada por la
+        // derecha que no es un proxy propio es el cliente (las anteriores las controla el cliente)
+        String[] direcciones = forwardedFor.split(",");
+        for (int i = direcciones.length - 1; i >= 0; i--) {
+            String direccion = direcciones[i].trim();
+            if (!direccion.isEmpty() && !esProxyConfiable(direccion)) {
+                return direccion;
+            }
+        }
+        return remota;
+    }
+
+    private boolean esProxyConfiable(String direccion) {
+        // Solo literales IP: IpAddressMatcher resolvería un nombre por DNS
+        if (direccion == null || !direccion.chars().allMatch(c -> Character.digit(c, 16) >= 0 || c == '.' || c == ':')) {
+            return false;
+        }
+        try {
+            return proxies.stream().anyMatch(proxy -> proxy.matches(direccion));
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private DemasiadosIntentosException demasiadosIntentos(long esperaMs) {
+        return new DemasiadosIntentosException("Demasiados intentos de inicio de sesión. Inténtelo de nuevo más tarde.",
+                Math.max(1, (esperaMs + 999) / 1000));
+    }
+}
@@ -0,0 +1,26 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+public enum MotivoRechazoToken {
+
+    FIRMA("signature", "Firma JWT inválida"),
+    MALFORMADO("malformed", "Token JWT inválido"),
+    EXPIRADO("expired", "Token JWT expirado"),
+    NO_SOPORTADO("unsupported", "Token JWT no soportado"),
+    VACIO("empty", "Claims del JWT vacío");
+
+    private final String tag;
+    private final String descripcion;
+
+    MotivoRechazoToken(String tag, String descripcion) {
+        this.tag = tag;
+        this.descripcion = descripcion;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+}
@@ -0,0 +1,16 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+/**
+ * Almacén de contadores de intentos. La implementación por defecto es local al nodo;
+ * para compartir los contadores entre réplicas basta con registrar otra implementación
+ * marcada como @Primary.
+ */
+public interface RateLimiterBackend {
+
+    /**
+     * Registra un intento para la clave dentro de una ventana deslizante.
+     *
+     * @return 0 si el intento se admite, o los milisegundos a esperar si se supera el límite
+     */
+    long intentar(String clave, int limite, long ventanaMs);
+}
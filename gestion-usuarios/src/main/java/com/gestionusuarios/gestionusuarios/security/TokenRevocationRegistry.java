@@ -0,0 +1,47 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro en memoria de usuarios cuyos tokens emitidos hasta un instante dado
+ * ya no deben aceptarse (desactivación, eliminación o cambio de contraseña).
+ * Las entradas se descartan cuando ya no puede existir un token vigente anterior a ellas.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    @Value("${app.jwt.expiration}")
+    private long jwtExpirationInMs;
+
+    private final Map<Long, Long> revocaciones = new ConcurrentHashMap<>();
+
+    public void revocar(Long usuarioId) {
+        long ahora = System.currentTimeMillis();
+        revocaciones.put(usuarioId, ahora);
+        revocaciones.values().removeIf(revocadoEn -> revocadoEn < ahora - jwtExpirationInMs);
+    }
+
+    // Operaciones masivas: una sola pasada de limpieza para todo el lote
+    public void revocar(Collection<Long> usuarioIds) {
+        long ahora = System.currentTimeMillis();
+        usuarioIds.forEach(usuarioId -> revocaciones.put(usuarioId, ahora));
+        revocaciones.values().removeIf(revocadoEn -> revocadoEn < ahora - jwtExpirationInMs);
+    }
+
+    public boolean estaRevocado(Long usuarioId, Date emitidoEn) {
+        Long revocadoEn = revocaciones.get(usuarioId);
+        if (revocadoEn == null) {
+            return false;
+        }
+        // emitidoEn viene del claim iat_ms (milisegundos): se rechaza todo token emitido en el instante de la
+        // revocación o antes. Un token sin ese claim solo trae iat en segundos y también se rechaza si es del
+        // mismo segundo (basta con volver a iniciar sesión).
+        return emitidoEn == null || emitidoEn.getTime() <= revocadoEn;
+    }
+}
@@ -0,0 +1,74 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Contabiliza los tokens rechazados por motivo sin bloquear los hilos de las peticiones.
+ * Los contadores se exponen en actuator como jwt.validation.failures{reason=...} y el log
+ * se emite de forma resumida desde el planificador, una línea por motivo y por intervalo.
+ */
+@Component
+public class TokenValidationMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenValidationMonitor.class);
+
+    private static final int MAX_LONGITUD_EJEMPLO = 200;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<MotivoRechazoToken, Counter> contadores = new EnumMap<>(MotivoRechazoToken.class);
+    private final Map<MotivoRechazoToken, AtomicReference<String>> ejemplos = new EnumMap<>(MotivoRechazoToken.class);
+    private final Map<MotivoRechazoToken, Double> totalesRegistrados = new EnumMap<>(MotivoRechazoToken.class);
+
+    @PostConstruct
+    public void init() {
+        for (MotivoRechazoToken motivo : MotivoRechazoToken.values()) {
+            contadores.put(motivo, Counter.builder("jwt.validation.failures")
+                    .description("Tokens JWT rechazados por motivo")
+                    .tag("reason", motivo.getTag())
+                    .register(meterRegistry));
+            ejemplos.put(motivo, new AtomicReference<>());
+            totalesRegistrados.put(motivo, 0.0);
+        }
+    }
+
+    public void registrarFallo(MotivoRechazoToken motivo, String detalle) {
+        contadores.get(motivo).increment();
+        // Solo se conserva la última muestra; el hilo de la petición nunca escribe en el log
+        ejemplos.get(motivo).lazySet(detalle);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.failure-log.interval:60000}")
+    public void emitirResumen() {
+        for (MotivoRechazoToken motivo : MotivoRechazoToken.values()) {
+            double total = contadores.get(motivo).count();
+            long nuevos = (long) (total - totalesRegistrados.get(motivo));
+            if (nuevos <= 0) {
+                continue;
+            }
+            totalesRegistrados.put(motivo, total);
+
+            logger.warn("{}: {} tokens rechazados desde el último resumen (total {}). Ejemplo: {}",
+                    motivo.getDescripcion(), nuevos, (long) total, recortar(ejemplos.get(motivo).getAndSet(null)));
+        }
+    }
+
+    private String recortar(String detalle) {
+        if (detalle == null || detalle.length() <= MAX_LONGITUD_EJEMPLO) {
+            return detalle;
+        }
+        return detalle.substring(0, MAX_LONGITUD_EJEMPLO) + "...";
+    }
+}
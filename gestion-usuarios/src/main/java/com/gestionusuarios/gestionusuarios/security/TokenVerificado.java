@@ -0,0 +1,33 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Claims de un JWT cuya firma y expiración ya fueron verificadas.
+ */
+@Getter
+@AllArgsConstructor
+public class TokenVerificado {
+
+    private final String username;
+    private final Long usuarioId;
+    private final String email;
+    private final List<GrantedAuthority> authorities;
+    // Con precisión de milisegundos si el token lleva el claim iat_ms (modo stateless)
+    private final Date emitidoEn;
+    private final Date expiraEn;
+
+    // Solo los tokens emitidos en modo stateless llevan la identidad completa
+    public boolean contieneIdentidad() {
+        return usuarioId != null;
+    }
+
+    public UserPrincipal crearPrincipal() {
+        return new UserPrincipal(usuarioId, username, email, null, authorities);
+    }
+}
@@ -0,0 +1,137 @@
+package com.gestionusuarios.gestionusuarios.security;
+
+import com.gestionusuarios.gestionusuarios.cache.InvalidacionBus;
+import com.gestionusuarios.gestionusuarios.cache.InvalidacionUsuarios;
+import com.gestionusuarios.gestionusuarios.event.PerfilModificadoEvent;
+import com.gestionusuarios.gestionusuarios.event.UsuarioModificadoEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caché acotada por tamaño y TTL de los principales cargados desde la base de datos,
+ * indexada por username y por id. Las modificaciones hechas en otros nodos llegan por el
+ * InvalidacionBus (las de este nodo, por los eventos tras el commit). Las estadísticas de
+ * aciertos y fallos se publican en actuator como cache.gets{cache=usuarios.principal.*}.
+ */
+@Component
+public class UserDetailsCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private InvalidacionBus bus;
+
+    @Value("${app.user-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.user-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.user-cache.ttl:60000}")
+    private long ttlInMs;
+
+    // Se incrementa antes de cada evicción. Las evicciones que recorren los valores no ven una carga aún sin
+    // terminar: si coincide con una, el principal cargado (quizá anterior al commit) se retira en lugar de
+    // seguir autenticando con el estado o los roles antiguos hasta el TTL.
+    private final AtomicLong evicciones = new AtomicLong();
+
+    private Cache<String, UserPrincipal> porUsername;
+    private Cache<Long, UserPrincipal> porId;
+
+    @PostConstruct
+    public void init() {
+        porUsername = crearCache();
+        porId = crearCache();
+        CaffeineCacheMetrics.monitor(meterRegistry, porUsername, "usuarios.principal.username");
+        CaffeineCacheMetrics.monitor(meterRegistry, porId, "usuarios.principal.id");
+        bus.suscribir(this::aplicarRemota);
+    }
+
+    private <K> Cache<K, UserPrincipal> crearCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlInMs))
+                .recordStats()
+                .build();
+    }
+
+    public UserPrincipal obtenerPorUsername(String username, Function<String, UserPrincipal> cargador) {
+        if (!enabled) {
+            return cargador.apply(username);
+        }
+        return cargarSinCarrera(porUsername, username, cargador);
+    }
+
+    public UserPrincipal obtenerPorId(Long id, Function<Long, UserPrincipal> cargador) {
+        if (!enabled) {
+            return cargador.apply(id);
+        }
+        return cargarSinCarrera(porId, id, cargador);
+    }
+
+    private <K> UserPrincipal cargarSinCarrera(Cache<K, UserPrincipal> cache, K clave, Function<K, UserPrincipal> cargador) {
+        long eviccionesAntes = evicciones.get();
+        UserPrincipal principal = cache.get(clave, cargador);
+        if (evicciones.get() != eviccionesAntes) {
+            cache.asMap().remove(clave, principal);
+        }
+        return principal;
+    }
+
+    public void evictarUsuarios(Collection<Long> usuarioIds) {
+        evicciones.incrementAndGet();
+        porId.invalidateAll(usuarioIds);
+        porUsername.asMap().values().removeIf(principal -> usuarioIds.contains(principal.getId()));
+    }
+
+    public void evictarPorPerfil(String nombrePerfil) {
+        String authority = "ROLE_" + nombrePerfil.toUpperCase();
+        evicciones.incrementAndGet();
+        porId.asMap().values().removeIf(principal -> tieneAuthority(principal, authority));
+        porUsername.asMap().values().removeIf(principal -> tieneAuthority(principal, authority));
+    }
+
+    public void evictarTodo() {
+        evicciones.incrementAndGet();
+        porId.invalidateAll();
+        porUsername.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsuarioModificado(UsuarioModificadoEvent event) {
+        evictarUsuarios(event.getUsuarioIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPerfilModificado(PerfilModificadoEvent event) {
+        if (event.getNombreAnterior() != null) {
+            evictarPorPerfil(event.getNombreAnterior());
+        }
+    }
+
+    // UsuarioCache publica cada modificación de usuarios; un renombrado de perfil llega como invalidación total
+    private void aplicarRemota(InvalidacionUsuarios invalidacion) {
+        if (invalidacion.esTotal()) {
+            evictarTodo();
+        } else {
+            evictarUsuarios(invalidacion.getUsuarioIds());
+        }
+    }
+
+    private boolean tieneAuthority(UserPrincipal principal, String authority) {
+        return principal.getAuthorities().stream().anyMatch(a -> authority.equals(a.getAuthority()));
+    }
+}
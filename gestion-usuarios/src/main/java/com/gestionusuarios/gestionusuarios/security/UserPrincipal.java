@@ -20,12 +20,20 @@ public class UserPrincipal implements UserDetails {
 
     private Collection<? extends GrantedAuthority> authorities;
 
+    private boolean activo;
+
     public UserPrincipal(Long id, String username, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        this(id, username, email, password, authorities, true);
+    }
+
+    public UserPrincipal(Long id, String username, String email, String password,
+                         Collection<? extends GrantedAuthority> authorities, boolean activo) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.password = password;
         this.authorities = authorities;
+        this.activo = activo;
     }
 
     public static UserPrincipal create(Usuario usuario, List<GrantedAuthority> authorities) {
@@ -34,7 +42,8 @@ public class UserPrincipal implements UserDetails {
                 usuario.getUsername(),
                 usuario.getEmail(),
                 usuario.getPassword(),
-                authorities
+                authorities,
+                !Boolean.FALSE.equals(usuario.getActivo())
         );
     }
 
@@ -78,7 +87,7 @@ public class UserPrincipal implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return true;
+        return activo;
     }
 
     @Override
@@ -0,0 +1,130 @@
+package com.gestionusuarios.gestionusuarios.service;
+
+import com.gestionusuarios.gestionusuarios.config.ConsistenciaLecturas;
+import com.gestionusuarios.gestionusuarios.dto.PerfilDTO;
+import com.gestionusuarios.gestionusuarios.entity.Perfil;
+import com.gestionusuarios.gestionusuarios.event.PerfilModificadoEvent;
+import com.gestionusuarios.gestionusuarios.repository.PerfilRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copia en memoria del catálogo de perfiles, indexada por id y por nombre. Las lecturas consultan
+ * una instantánea inmutable sin bloqueos; cada alta, modificación o baja la sustituye por otra
+ * recién cargada tras el commit, y una recarga periódica recoge los cambios hechos por otras instancias.
+ */
+@Component
+public class CatalogoPerfiles {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogoPerfiles.class);
+
+    @Autowired
+    private PerfilRepository perfilRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<Instantanea> instantanea = new AtomicReference<>(Instantanea.VACIA);
+    private TransactionTemplate transaccionCarga;
+
+    @PostConstruct
+    public void init() {
+        // Transacción propia: la recarga se lanza también tras el commit de la transacción que modificó el catálogo
+        transaccionCarga = new TransactionTemplate(transactionManager);
+        transaccionCarga.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaccionCarga.setReadOnly(true);
+
+        Gauge.builder("perfiles.catalogo.size", instantanea, ref -> ref.get().porId.size())
+                .description("Perfiles en la instantánea en memoria")
+                .register(meterRegistry);
+        TimeGauge.builder("perfiles.catalogo.age", instantanea, TimeUnit.MILLISECONDS,
+                        ref -> ref.get().cargadaEn == 0 ? 0 : System.currentTimeMillis() - ref.get().cargadaEn)
+                .description("Antigüedad de la instantánea en memoria")
+                .register(meterRegistry);
+
+        try {
+            recargar();
+        } catch (RuntimeException ex) {
+            // Sin instantánea las búsquedas van a la base de datos hasta la siguiente recarga
+            logger.warn("No se pudo cargar el catálogo de perfiles: {}", ex.getMessage());
+        }
+    }
+
+    public Optional<PerfilDTO> buscarPorId(Long id) {
+        return Optional.ofNullable(instantanea.get().porId.get(id)).map(CatalogoPerfiles::copiar);
+    }
+
+    public Optional<PerfilDTO> buscarPorNombre(String nombre) {
+        return Optional.ofNullable(instantanea.get().porNombre.get(nombre)).map(CatalogoPerfiles::copiar);
+    }
+
+    @Scheduled(fixedDelayString = "${app.perfiles.catalogo.refresh-interval:300000}",
+               initialDelayString = "${app.perfiles.catalogo.refresh-interval:300000}")
+    public void recargarPeriodicamente() {
+        try {
+            recargar();
+        } catch (RuntimeException ex) {
+            logger.warn("Error al recargar el catálogo de perfiles, se mantiene la instantánea anterior: {}", ex.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPerfilModificado(PerfilModificadoEvent event) {
+        recargar();
+    }
+
+    // Desde el primario: tras una escritura una réplica podría devolver el catálogo anterior
+    public void recargar() {
+        List<Perfil> perfiles = ConsistenciaLecturas.enPrimario(() -> transaccionCarga.execute(estado -> perfilRepository.findAll()));
+        Map<Long, PerfilDTO> porId = new HashMap<>();
+        Map<String, PerfilDTO> porNombre = new HashMap<>();
+        for (Perfil perfil : perfiles) {
+            PerfilDTO dto = new PerfilDTO(perfil.getId(), perfil.getNombre(), perfil.getDescripcion(),
+                    perfil.getFechaCreacion(), perfil.getFechaModificacion(), perfil.getVersion());
+            porId.put(dto.getId(), dto);
+            porNombre.put(dto.getNombre(), dto);
+        }
+        instantanea.set(new Instantanea(Map.copyOf(porId), Map.copyOf(porNombre), System.currentTimeMillis()));
+    }
+
+    // Los DTO son mutables: cada llamada recibe su copia para no alterar la instantánea compartida
+    private static PerfilDTO copiar(PerfilDTO perfil) {
+        return new PerfilDTO(perfil.getId(), perfil.getNombre(), perfil.getDescripcion(),
+                perfil.getFechaCreacion(), perfil.getFechaModificacion(), perfil.getVersion());
+    }
+
+    private static final class Instantanea {
+        private static final Instantanea VACIA = new Instantanea(Map.of(), Map.of(), 0);
+
+        private final Map<Long, PerfilDTO> porId;
+        private final Map<String, PerfilDTO> porNombre;
+        private final long cargadaEn;
+
+        private Instantanea(Map<Long, PerfilDTO> porId, Map<String, PerfilDTO> porNombre, long cargadaEn) {
+            this.porId = porId;
+            this.porNombre = porNombre;
+            this.cargadaEn = cargadaEn;
+        }
+    }
+}
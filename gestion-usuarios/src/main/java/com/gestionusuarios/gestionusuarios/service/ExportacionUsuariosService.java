@@ -0,0 +1,125 @@
+package com.gestionusuarios.gestionusuarios.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.mapper.UsuarioMapper;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+/**
+ * Exportación de usuarios fila a fila desde un cursor de base de datos. La memoria no depende
+ * del número de usuarios: cada fila se escribe en la salida en cuanto llega y se descarta.
+ */
+@Service
+public class ExportacionUsuariosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportacionUsuariosService.class);
+
+    // Mismas columnas y separador de perfiles que la importación, sin la contraseña
+    private static final String CABECERA_CSV = "id,username,email,nombre,apellidos,activo,perfiles,fechaCreacion,fechaModificacion";
+
+    public enum Formato { CSV, NDJSON }
+
+    @Autowired
+    private UsuarioMapper usuarioMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate transaccionLectura;
+
+    @PostConstruct
+    public void init() {
+        // Solo lectura: con réplicas configuradas la exportación no carga el primario
+        transaccionLectura = new TransactionTemplate(transactionManager);
+        transaccionLectura.setReadOnly(true);
+    }
+
+    public void exportar(String perfilNombre, Boolean activo, String searchTerm, Formato formato,
+                         OutputStream salida) throws IOException {
+        long inicio = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+
+        long filas;
+        try {
+            filas = transaccionLectura.execute(estado -> {
+                long escritas = 0;
+                try (Cursor<UsuarioDTO> cursor = usuarioMapper.exportar(vacioANull(perfilNombre), activo,
+                        vacioANull(searchTerm))) {
+                    if (formato == Formato.CSV) {
+                        writer.write(CABECERA_CSV);
+                        writer.write('\n');
+                    }
+                    for (UsuarioDTO usuario : cursor) {
+                        writer.write(formato == Formato.CSV ? filaCsv(usuario) : filaJson(usuario));
+                        writer.write('\n');
+                        escritas++;
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return escritas;
+            });
+        } catch (UncheckedIOException ex) {
+            // Normalmente el cliente ha cortado la descarga
+            throw ex.getCause();
+        }
+        writer.flush();
+
+        logger.info("Exportación de usuarios: {} filas en {} ms", filas, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private String filaJson(UsuarioDTO usuario) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(usuario);
+    }
+
+    private String filaCsv(UsuarioDTO usuario) {
+        String perfiles = usuario.getPerfiles() == null ? "" : usuario.getPerfiles().stream()
+                .sorted()
+                .collect(Collectors.joining("|"));
+        return String.join(",",
+                String.valueOf(usuario.getId()),
+                campoCsv(usuario.getUsername()),
+                campoCsv(usuario.getEmail()),
+                campoCsv(usuario.getNombre()),
+                campoCsv(usuario.getApellidos()),
+                String.valueOf(usuario.getActivo()),
+                campoCsv(perfiles),
+                usuario.getFechaCreacion() == null ? "" : usuario.getFechaCreacion().toString(),
+                usuario.getFechaModificacion() == null ? "" : usuario.getFechaModificacion().toString());
+    }
+
+    private static String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+
+    private static String vacioANull(String valor) {
+        return StringUtils.hasText(valor) ? valor : null;
+    }
+}
@@ -0,0 +1,407 @@
+package com.gestionusuarios.gestionusuarios.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestionusuarios.gestionusuarios.dto.ImportacionResultado;
+import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.entity.Perfil;
+import com.gestionusuarios.gestionusuarios.exception.ImportacionInvalidaException;
+import com.gestionusuarios.gestionusuarios.repository.PerfilRepository;
+import com.gestionusuarios.gestionusuarios.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Alta masiva de usuarios desde NDJSON (un UsuarioDTO por línea) o CSV con cabecera. La entrada
+ * se consume por lotes de app.import.batch-size filas sin cargarla entera en memoria. Por lote:
+ * una consulta de unicidad por campo, cifrado de contraseñas en paralelo e inserción con lotes
+ * JDBC en su propia transacción, de modo que un lote rechazado no deshace los anteriores.
+ */
+@Service
+public class ImportacionUsuariosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionUsuariosService.class);
+
+    private static final String INSERT_USUARIO = "INSERT INTO usuarios (username, email, password, nombre, apellidos, "
+            + "activo, fecha_creacion, fecha_modificacion) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_IDS = "SELECT id, username FROM usuarios WHERE username IN (:usernames)";
+    private static final String INSERT_USUARIO_PERFIL = "INSERT INTO usuario_perfiles (usuario_id, perfil_id) VALUES (?, ?)";
+
+    public enum Formato { NDJSON, CSV }
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PerfilRepository perfilRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.import.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${app.import.max-errores:1000}")
+    private int maxErrores;
+
+    private ExecutorService hashExecutor;
+    private TransactionTemplate transaccionLote;
+    private Counter filasImportadas;
+    private Counter filasRechazadas;
+
+    @PostConstruct
+    public void init() {
+        int hilos = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        // Pool propio: una importación no debe competir con los logins por el pool de verificación
+        hashExecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "import-hash-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        transaccionLote = new TransactionTemplate(transactionManager);
+        filasImportadas = Counter.builder("usuarios.import.rows").tag("result", "imported").register(meterRegistry);
+        filasRechazadas = Counter.builder("usuarios.import.rows").tag("result", "rejected").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    public ImportacionResultado importar(InputStream entrada, Formato formato) throws IOException {
+        long inicio = System.nanoTime();
+        ImportacionResultado resultado = new ImportacionResultado();
+        Map<String, Long> perfiles = perfilRepository.findAll().stream()
+                .collect(Collectors.toMap(Perfil::getNombre, Perfil::getId));
+
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String[] cabecera = null;
+            List<Fila> lote = new ArrayList<>(batchSize);
+            String linea;
+            long numero = 0;
+
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                if (formato == Formato.CSV && cabecera == null) {
+                    cabecera = leerCabecera(linea);
+                    continue;
+                }
+
+                resultado.setProcesados(resultado.getProcesados() + 1);
+                try {
+                    UsuarioDTO usuario = formato == Formato.CSV ? leerCsv(cabecera, linea) : objectMapper.readValue(linea, UsuarioDTO.class);
+                    lote.add(new Fila(numero, usuario));
+                } catch (JsonProcessingException ex) {
+                    registrarError(resultado, numero, null, "JSON inválido: " + ex.getOriginalMessage());
+                } catch (IllegalArgumentException ex) {
+                    registrarError(resultado, numero, null, "CSV inválido: " + ex.getMessage());
+                }
+
+                if (lote.size() >= batchSize) {
+                    procesarLote(lote, perfiles, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                procesarLote(lote, perfiles, resultado);
+            }
+        }
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        resultado.setDuracionMs(duracionMs);
+        resultado.setUsuariosPorSegundo(duracionMs == 0 ? resultado.getImportados()
+                : resultado.getImportados() * 1000.0 / duracionMs);
+        logger.info("Importación de usuarios: {} filas, {} importadas, {} rechazadas en {} ms ({} usuarios/s)",
+                resultado.getProcesados(), resultado.getImportados(), resultado.getFallidos(), duracionMs,
+                String.format("%.1f", resultado.getUsuariosPorSegundo()));
+        return resultado;
+    }
+
+    private void procesarLote(List<Fila> lote, Map<String, Long> perfiles, ImportacionResultado resultado) {
+        List<Fila> validas = new ArrayList<>(lote.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (Fila fila : lote) {
+            String error = validar(fila.usuario, perfiles);
+            if (error == null && usernames.contains(fila.usuario.getUsername())) {
+                error = "El nombre de usuario está repetido en el fichero: " + fila.usuario.getUsername();
+            } else if (error == null && emails.contains(fila.usuario.getEmail())) {
+                error = "El email está repetido en el fichero: " + fila.usuario.getEmail();
+            }
+            if (error != null) {
+                registrarError(resultado, fila.linea, fila.usuario.getUsername(), error);
+                continue;
+            }
+            usernames.add(fila.usuario.getUsername());
+            emails.add(fila.usuario.getEmail());
+            validas.add(fila);
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        // Una consulta por campo para todo el lote
+        Set<String> usernamesExistentes = new HashSet<>(usuarioRepository.findUsernamesExistentes(usernames));
+        Set<String> emailsExistentes = new HashSet<>(usuarioRepository.findEmailsExistentes(emails));
+        List<Fila> nuevas = new ArrayList<>(validas.size());
+        for (Fila fila : validas) {
+            if (usernamesExistentes.contains(fila.usuario.getUsername())) {
+                registrarError(resultado, fila.linea, fila.usuario.getUsername(),
+                        "El nombre de usuario ya existe: " + fila.usuario.getUsername());
+            } else if (emailsExistentes.contains(fila.usuario.getEmail())) {
+                registrarError(resultado, fila.linea, fila.usuario.getUsername(),
+                        "El email ya existe: " + fila.usuario.getEmail());
+            } else {
+                nuevas.add(fila);
+            }
+        }
+        if (nuevas.isEmpty()) {
+            return;
+        }
+
+        cifrarPasswords(nuevas);
+
+        try {
+            transaccionLote.executeWithoutResult(estado -> insertar(nuevas, perfiles));
+            resultado.setImportados(resultado.getImportados() + nuevas.size());
+            filasImportadas.increment(nuevas.size());
+        } catch (DataAccessException ex) {
+            // Típicamente un alta concurrente con el mismo username o email: se rechaza el lote completo
+            String mensaje = "Lote rechazado por la base de datos: " + ex.getMostSpecificCause().getMessage();
+            for (Fila fila : nuevas) {
+                registrarError(resultado, fila.linea, fila.usuario.getUsername(), mensaje);
+            }
+        }
+    }
+
+    private String validar(UsuarioDTO usuario, Map<String, Long> perfiles) {
+        Set<ConstraintViolation<UsuarioDTO>> violaciones = validator.validate(usuario);
+        if (!violaciones.isEmpty()) {
+            return violaciones.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (usuario.getPerfiles() != null) {
+            String faltan = usuario.getPerfiles().stream()
+                    .filter(nombre -> !perfiles.containsKey(nombre))
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            if (!faltan.isEmpty()) {
+                return "Perfiles no encontrados: " + faltan;
+            }
+        }
+        return null;
+    }
+
+    private void cifrarPasswords(List<Fila> filas) {
+        List<Callable<String>> tareas = filas.stream()
+                .map(fila -> (Callable<String>) () -> passwordEncoder.encode(fila.usuario.getPassword()))
+                .collect(Collectors.toList());
+        try {
+            List<Future<String>> hashes = hashExecutor.invokeAll(tareas);
+            for (int i = 0; i < filas.size(); i++) {
+                filas.get(i).passwordCifrada = hashes.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importación interrumpida", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Error al cifrar las contraseñas", ex.getCause());
+        }
+    }
+
+    // Usuarios con lotes JDBC, ids generados recuperados con una consulta y perfiles con otro lote
+    private void insertar(List<Fila> filas, Map<String, Long> perfiles) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_USUARIO, filas, filas.size(), (ps, fila) -> {
+            UsuarioDTO usuario = fila.usuario;
+            ps.setString(1, usuario.getUsername());
+            ps.setString(2, usuario.getEmail());
+            ps.setString(3, fila.passwordCifrada);
+            ps.setString(4, usuario.getNombre());
+            ps.setString(5, usuario.getApellidos());
+            ps.setBoolean(6, usuario.getActivo() == null || usuario.getActivo());
+            ps.setTimestamp(7, ahora);
+            ps.setTimestamp(8, ahora);
+        });
+
+        List<long[]> asignaciones = new ArrayList<>();
+        if (filas.stream().anyMatch(fila -> fila.usuario.getPerfiles() != null && !fila.usuario.getPerfiles().isEmpty())) {
+            Map<String, Long> ids = new HashMap<>();
+            namedParameterJdbcTemplate.query(SELECT_IDS,
+                    Map.of("usernames", filas.stream().map(fila -> fila.usuario.getUsername()).collect(Collectors.toList())),
+                    rs -> {
+                        ids.put(rs.getString("username"), rs.getLong("id"));
+                    });
+            for (Fila fila : filas) {
+                if (fila.usuario.getPerfiles() != null) {
+                    for (String perfil : fila.usuario.getPerfiles()) {
+                        asignaciones.add(new long[]{ids.get(fila.usuario.getUsername()), perfiles.get(perfil)});
+                    }
+                }
+            }
+        }
+        if (!asignaciones.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_USUARIO_PERFIL, asignaciones, asignaciones.size(), (ps, asignacion) -> {
+                ps.setLong(1, asignacion[0]);
+                ps.setLong(2, asignacion[1]);
+            });
+        }
+    }
+
+    private void registrarError(ImportacionResultado resultado, long linea, String username, String mensaje) {
+        resultado.setFallidos(resultado.getFallidos() + 1);
+        filasRechazadas.increment();
+        if (resultado.getErrores().size() < maxErrores) {
+            resultado.getErrores().add(new ImportacionResultado.ErrorFila(linea, username, mensaje));
+        }
+    }
+
+    private String[] leerCabecera(String linea) {
+        // Algunas hojas de cálculo guardan el CSV con BOM
+        String[] cabecera = dividirCsv(linea.startsWith("\uFEFF") ? linea.substring(1) : linea);
+        for (int i = 0; i < cabecera.length; i++) {
+            cabecera[i] = cabecera[i].trim();
+        }
+        if (!Arrays.asList(cabecera).containsAll(List.of("username", "email", "password", "nombre"))) {
+            throw new ImportacionInvalidaException(
+                    "La cabecera CSV debe incluir las columnas username, email, password y nombre");
+        }
+        return cabecera;
+    }
+
+    private UsuarioDTO leerCsv(String[] cabecera, String linea) {
+        String[] valores = dividirCsv(linea);
+        if (valores.length != cabecera.length) {
+            throw new IllegalArgumentException("se esperaban " + cabecera.length + " columnas y hay " + valores.length);
+        }
+
+        UsuarioDTO usuario = new UsuarioDTO();
+        for (int i = 0; i < cabecera.length; i++) {
+            String valor = valores[i].trim();
+            switch (cabecera[i]) {
+                case "username" -> usuario.setUsername(valor);
+                case "email" -> usuario.setEmail(valor);
+                case "password" -> usuario.setPassword(valor);
+                case "nombre" -> usuario.setNombre(valor);
+                case "apellidos" -> usuario.setApellidos(valor.isEmpty() ? null : valor);
+                case "activo" -> usuario.setActivo(valor.isEmpty() || Boolean.parseBoolean(valor));
+                // Varios perfiles en la misma celda separados por |
+                case "perfiles" -> usuario.setPerfiles(Arrays.stream(valor.split("\\|"))
+                        .map(String::trim)
+                        .filter(nombre -> !nombre.isEmpty())
+                        .collect(Collectors.toSet()));
+                default -> {
+                    // Columnas desconocidas se ignoran
+                }
+            }
+        }
+        return usuario;
+    }
+
+    // Campos separados por comas; entre comillas dobles admiten comas y "" como comilla literal
+    private static String[] dividirCsv(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("comillas sin cerrar");
+        }
+        campos.add(actual.toString());
+        return campos.toArray(new String[0]);
+    }
+
+    private static final class Fila {
+        private final long linea;
+        private final UsuarioDTO usuario;
+        private String passwordCifrada;
+
+        private Fila(long linea, UsuarioDTO usuario) {
+            this.linea = linea;
+            this.usuario = usuario;
+        }
+    }
+}
@@ -1,23 +1,61 @@
 package com.gestionusuarios.gestionusuarios.service;
 
+import com.gestionusuarios.gestionusuarios.dto.CursorPage;
+import com.gestionusuarios.gestionusuarios.dto.CursorPosicion;
 import com.gestionusuarios.gestionusuarios.dto.PerfilDTO;
 import com.gestionusuarios.gestionusuarios.entity.Perfil;
+import com.gestionusuarios.gestionusuarios.event.PerfilModificadoEvent;
+import com.gestionusuarios.gestionusuarios.exception.PrecondicionFallidaException;
 import com.gestionusuarios.gestionusuarios.exception.ResourceNotFoundException;
 import com.gestionusuarios.gestionusuarios.exception.ProfileAlreadyExistsException;
+import com.gestionusuarios.gestionusuarios.mapper.PerfilMapper;
 import com.gestionusuarios.gestionusuarios.repository.PerfilRepository;
+import com.gestionusuarios.gestionusuarios.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
 @Service
 @Transactional
 public class PerfilService {
 
+    private static final int TAMANO_MAXIMO_CURSOR = 100;
+
     @Autowired
     private PerfilRepository perfilRepository;
 
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // like: búsqueda portable (H2 incluido); trigram: requiere pg_trgm y ordena por similitud
+    @Value("${app.search.modo:like}")
+    private String modoBusqueda;
+
+    @Autowired
+    private PerfilMapper perfilMapper;
+
+    @Autowired
+    private CatalogoPerfiles catalogoPerfiles;
+
+    // jpa o mybatis (consulta mapeada directamente a PerfilDTO)
+    @Value("${app.persistence.perfiles:jpa}")
+    private String persistenciaPerfiles;
+
     public PerfilDTO crearPerfil(PerfilDTO perfilDTO) {
         // Validar que el perfil no existe
         if (perfilRepository.existsByNombre(perfilDTO.getNombre())) {
@@ -30,34 +68,89 @@ public class PerfilService {
         perfil.setDescripcion(perfilDTO.getDescripcion());
 
         Perfil perfilGuardado = perfilRepository.save(perfil);
+        eventPublisher.publishEvent(PerfilModificadoEvent.de(perfilGuardado.getId()));
         return convertirADTO(perfilGuardado);
     }
 
+    // Catálogo en memoria primero; un fallo va a la base de datos (perfil creado en otra instancia)
+    @Transactional(readOnly = true)
     public PerfilDTO obtenerPerfilPorId(Long id) {
+        Optional<PerfilDTO> enCatalogo = catalogoPerfiles.buscarPorId(id);
+        if (enCatalogo.isPresent()) {
+            return enCatalogo.get();
+        }
         Perfil perfil = perfilRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado con id: " + id));
+        catalogoPerfiles.recargar();
         return convertirADTO(perfil);
     }
 
+    @Transactional(readOnly = true)
     public PerfilDTO obtenerPerfilPorNombre(String nombre) {
-        Perfil perfil = perfilRepository.findByNombre(nombre)
-            .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado con nombre: " + nombre));
-        return convertirADTO(perfil);
+        Optional<PerfilDTO> enCatalogo = catalogoPerfiles.buscarPorNombre(nombre);
+        if (enCatalogo.isPresent()) {
+            return enCatalogo.get();
+        }
+        PerfilDTO perfil;
+        if ("mybatis".equalsIgnoreCase(persistenciaPerfiles)) {
+            perfil = Optional.ofNullable(perfilMapper.buscarPorNombre(nombre))
+                .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado con nombre: " + nombre));
+        } else {
+            perfil = perfilRepository.findByNombre(nombre)
+                .map(this::convertirADTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado con nombre: " + nombre));
+        }
+        catalogoPerfiles.recargar();
+        return perfil;
     }
 
+    @Transactional(readOnly = true)
     public Page<PerfilDTO> obtenerTodosLosPerfiles(Pageable pageable) {
         Page<Perfil> perfiles = perfilRepository.findAll(pageable);
         return perfiles.map(this::convertirADTO);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<PerfilDTO> obtenerPerfilesPorCursor(String cursor, int size, boolean incluirTotal) {
+        CursorPosicion posicion = CursorPosicion.decodificar(cursor);
+        int tamano = Math.max(1, Math.min(size, TAMANO_MAXIMO_CURSOR));
+        List<Perfil> perfiles = perfilRepository.findDespuesDe(posicion.getFechaCreacion(), posicion.getId(),
+            PageRequest.of(0, tamano + 1));
+
+        boolean haySiguiente = perfiles.size() > tamano;
+        List<PerfilDTO> contenido = perfiles.stream()
+            .limit(tamano)
+            .map(this::convertirADTO)
+            .collect(Collectors.toList());
+        String siguiente = null;
+        if (haySiguiente) {
+            PerfilDTO ultimo = contenido.get(contenido.size() - 1);
+            siguiente = new CursorPosicion(ultimo.getFechaCreacion(), ultimo.getId()).codificar();
+        }
+        return new CursorPage<>(contenido, siguiente, contenido.size(), incluirTotal ? perfilRepository.count() : null);
+    }
+
+    @Transactional(readOnly = true)
     public Page<PerfilDTO> buscarPerfiles(String searchTerm, Pageable pageable) {
-        Page<Perfil> perfiles = perfilRepository.searchPerfiles(searchTerm, pageable);
+        Page<Perfil> perfiles;
+        if ("trigram".equalsIgnoreCase(modoBusqueda) && pageable.getSort().isUnsorted()) {
+            String termino = searchTerm.toLowerCase(Locale.ROOT);
+            perfiles = perfilRepository.searchPerfilesPorSimilitud(termino, "%" + termino + "%",
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        } else {
+            perfiles = perfilRepository.searchPerfiles(searchTerm, pageable);
+        }
         return perfiles.map(this::convertirADTO);
     }
 
-    public PerfilDTO actualizarPerfil(Long id, PerfilDTO perfilDTO) {
+    // versionEsperada: la indicada en If-Match; null para una actualización incondicional
+    public PerfilDTO actualizarPerfil(Long id, PerfilDTO perfilDTO, Long versionEsperada) {
         Perfil perfil = perfilRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado con id: " + id));
+        if (versionEsperada != null && !versionEsperada.equals(perfil.getVersion())) {
+            throw new PrecondicionFallidaException("El perfil " + id + " ha sido modificado (versión actual: "
+                + perfil.getVersion() + ")");
+        }
 
         // Validar que el nuevo nombre no existe (si es diferente)
         if (!perfil.getNombre().equals(perfilDTO.getNombre()) && 
@@ -65,11 +158,28 @@ public class PerfilService {
             throw new ProfileAlreadyExistsException("El perfil ya existe: " + perfilDTO.getNombre());
         }
 
+        String nombreAnterior = perfil.getNombre();
+
         // Actualizar campos
         perfil.setNombre(perfilDTO.getNombre());
         perfil.setDescripcion(perfilDTO.getDescripcion());
 
-        Perfil perfilActualizado = perfilRepository.save(perfil);
+        // Flush inmediato: el DTO devuelto lleva ya la nueva versión y un conflicto concurrente se responde con 412
+        Perfil perfilActualizado;
+        try {
+            perfilActualizado = perfilRepository.saveAndFlush(perfil);
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            throw new PrecondicionFallidaException("El perfil " + id + " ha sido modificado por otra petición", ex);
+        }
+
+        // Si cambia el nombre, las authorities de los usuarios con este perfil dejan de ser válidas
+        // y su representación (lista de perfiles) cambia: nueva versión para sus ETag
+        if (!nombreAnterior.equals(perfilActualizado.getNombre())) {
+            usuarioRepository.incrementarVersionPorPerfil(id, LocalDateTime.now());
+            eventPublisher.publishEvent(new PerfilModificadoEvent(id, nombreAnterior));
+        } else {
+            eventPublisher.publishEvent(PerfilModificadoEvent.de(id));
+        }
         return convertirADTO(perfilActualizado);
     }
 
@@ -78,11 +188,12 @@ public class PerfilService {
             .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado con id: " + id));
         
         // Verificar si hay usuarios asociados a este perfil
-        if (!perfil.getUsuarios().isEmpty()) {
+        if (usuarioRepository.existsByPerfilesId(id)) {
             throw new IllegalStateException("No se puede eliminar el perfil porque tiene usuarios asociados");
         }
         
         perfilRepository.delete(perfil);
+        eventPublisher.publishEvent(PerfilModificadoEvent.de(id));
     }
 
     private PerfilDTO convertirADTO(Perfil perfil) {
@@ -92,6 +203,7 @@ public class PerfilService {
         dto.setDescripcion(perfil.getDescripcion());
         dto.setFechaCreacion(perfil.getFechaCreacion());
         dto.setFechaModificacion(perfil.getFechaModificacion());
+        dto.setVersion(perfil.getVersion());
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.gestionusuarios.gestionusuarios.service;
+
+import com.gestionusuarios.gestionusuarios.entity.RefreshToken;
+import com.gestionusuarios.gestionusuarios.exception.RefreshTokenInvalidoException;
+import com.gestionusuarios.gestionusuarios.repository.RefreshTokenRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.UUID;
+
+@Service
+@Transactional
+public class RefreshTokenService {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${app.jwt.refresh-expiration:1209600000}")
+    private long refreshExpirationInMs;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Getter
+    @AllArgsConstructor
+    public static class Rotacion {
+        private final Long usuarioId;
+        private final String refreshToken;
+    }
+
+    public String emitir(Long usuarioId) {
+        return crear(usuarioId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Consume el refresh token y emite el siguiente de su familia. Presentar un token ya
+     * consumido se trata como robo: se revoca la familia completa.
+     */
+    @Transactional(noRollbackFor = RefreshTokenInvalidoException.class)
+    public Rotacion rotar(String refreshToken) {
+        RefreshToken actual = refreshTokenRepository.findByTokenHash(calcularHash(refreshToken))
+            .orElseThrow(() -> new RefreshTokenInvalidoException("Refresh token inválido"));
+
+        if (actual.getRevocado()) {
+            refreshTokenRepository.revocarFamilia(actual.getFamilia());
+            throw new RefreshTokenInvalidoException("Refresh token reutilizado; la sesión ha sido revocada");
+        }
+
+        if (actual.getFechaExpiracion().isBefore(LocalDateTime.now())) {
+            throw new RefreshTokenInvalidoException("Refresh token expirado");
+        }
+
+        // Si otra petición concurrente ya lo consumió, también es una reutilización
+        if (refreshTokenRepository.marcarUsado(actual.getId()) == 0) {
+            refreshTokenRepository.revocarFamilia(actual.getFamilia());
+            throw new RefreshTokenInvalidoException("Refresh token reutilizado; la sesión ha sido revocada");
+        }
+
+        return new Rotacion(actual.getUsuarioId(), crear(actual.getUsuarioId(), actual.getFamilia()));
+    }
+
+    public void revocarTodos(Long usuarioId) {
+        refreshTokenRepository.revocarPorUsuario(usuarioId);
+    }
+
+    public void revocarTodos(Collection<Long> usuarioIds) {
+        refreshTokenRepository.revocarPorUsuarios(usuarioIds);
+    }
+
+    public void eliminarTodos(Long usuarioId) {
+        refreshTokenRepository.eliminarPorUsuario(usuarioId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-cleanup.interval:3600000}")
+    public void eliminarExpirados() {
+        refreshTokenRepository.eliminarExpirados(LocalDateTime.now());
+    }
+
+    private String crear(Long usuarioId, String familia) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUsuarioId(usuarioId);
+        refreshToken.setTokenHash(calcularHash(token));
+        refreshToken.setFamilia(familia);
+        refreshToken.setFechaExpiracion(LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationInMs)));
+        refreshToken.setRevocado(false);
+        refreshTokenRepository.save(refreshToken);
+
+        return token;
+    }
+
+    private String calcularHash(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+}
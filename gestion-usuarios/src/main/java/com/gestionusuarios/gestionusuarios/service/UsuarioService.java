@@ -1,27 +1,75 @@
 package com.gestionusuarios.gestionusuarios.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestionusuarios.gestionusuarios.cache.UsuarioCache;
+import com.gestionusuarios.gestionusuarios.config.ConsistenciaLecturas;
+import com.gestionusuarios.gestionusuarios.dto.CursorPage;
+import com.gestionusuarios.gestionusuarios.dto.CursorPosicion;
+import com.gestionusuarios.gestionusuarios.dto.OperacionMasivaResultado;
+import com.gestionusuarios.gestionusuarios.dto.PerfilDTO;
+import com.gestionusuarios.gestionusuarios.dto.SeleccionUsuariosDTO;
 import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
 import com.gestionusuarios.gestionusuarios.entity.Perfil;
 import com.gestionusuarios.gestionusuarios.entity.Usuario;
+import com.gestionusuarios.gestionusuarios.event.UsuarioModificadoEvent;
+import com.gestionusuarios.gestionusuarios.exception.ParcheInvalidoException;
+import com.gestionusuarios.gestionusuarios.exception.PrecondicionFallidaException;
 import com.gestionusuarios.gestionusuarios.exception.ResourceNotFoundException;
 import com.gestionusuarios.gestionusuarios.exception.UserAlreadyExistsException;
+import com.gestionusuarios.gestionusuarios.mapper.UsuarioMapper;
 import com.gestionusuarios.gestionusuarios.repository.PerfilRepository;
 import com.gestionusuarios.gestionusuarios.repository.UsuarioRepository;
+import com.gestionusuarios.gestionusuarios.repository.UsuarioResumen;
+import com.gestionusuarios.gestionusuarios.security.TokenRevocationRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class UsuarioService {
 
+    private static final int TAMANO_MAXIMO_CURSOR = 100;
+
+    // Ningún usuario tiene este id: en un alta se comparan todos los existentes
+    private static final long SIN_USUARIO = 0L;
+
+    // En un merge patch se aceptan los campos de UsuarioDTO; los de solo lectura se ignoran
+    // para que el cliente pueda reenviar la representación obtenida con GET
+    private static final Set<String> CAMPOS_MODIFICABLES =
+        Set.of("username", "email", "password", "nombre", "apellidos", "activo", "perfiles");
+    private static final Set<String> CAMPOS_SOLO_LECTURA = Set.of("id", "version", "fechaCreacion", "fechaModificacion");
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
@@ -31,15 +79,45 @@ public class UsuarioService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // like: búsqueda portable (H2 incluido); trigram: requiere pg_trgm y ordena por similitud
+    @Value("${app.search.modo:like}")
+    private String modoBusqueda;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UsuarioMapper usuarioMapper;
+
+    @Autowired
+    private CatalogoPerfiles catalogoPerfiles;
+
+    @Autowired
+    private UsuarioCache usuarioCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    // Ids por sentencia en las operaciones masivas (PostgreSQL admite como mucho 32767 parámetros)
+    @Value("${app.bulk.chunk-size:1000}")
+    private int tamanoBloque;
+
+    // jpa o mybatis: el listado paginado se lee con una sola consulta y se mapea directamente a UsuarioDTO
+    @Value("${app.persistence.usuarios:jpa}")
+    private String persistenciaUsuarios;
+
     public UsuarioDTO crearUsuario(UsuarioDTO usuarioDTO) {
         // Validar que el usuario no existe
-        if (usuarioRepository.existsByUsername(usuarioDTO.getUsername())) {
-            throw new UserAlreadyExistsException("El nombre de usuario ya existe: " + usuarioDTO.getUsername());
-        }
-        
-        if (usuarioRepository.existsByEmail(usuarioDTO.getEmail())) {
-            throw new UserAlreadyExistsException("El email ya existe: " + usuarioDTO.getEmail());
-        }
+        validarUnicidad(usuarioDTO, SIN_USUARIO);
 
         // Crear nuevo usuario
         Usuario usuario = new Usuario();
@@ -52,69 +130,80 @@ public class UsuarioService {
 
         // Asignar perfiles
         if (usuarioDTO.getPerfiles() != null && !usuarioDTO.getPerfiles().isEmpty()) {
-            Set<Perfil> perfiles = new HashSet<>();
-            for (String perfilNombre : usuarioDTO.getPerfiles()) {
-                Perfil perfil = perfilRepository.findByNombre(perfilNombre)
-                    .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado: " + perfilNombre));
-                perfiles.add(perfil);
-            }
-            usuario.setPerfiles(perfiles);
+            usuario.setPerfiles(resolverPerfiles(usuarioDTO.getPerfiles()));
         }
 
-        Usuario usuarioGuardado = usuarioRepository.save(usuario);
+        Usuario usuarioGuardado = conPerfilesVigentes(() -> idsPerfiles(usuario), () -> usuarioRepository.saveAndFlush(usuario));
         return convertirADTO(usuarioGuardado);
     }
 
+    // SUPPORTS: un acierto en caché no abre transacción ni pide conexión; la consulta del fallo lleva la suya.
+    // Los fallos se leen del primario: una fila atrasada de una réplica quedaría en caché durante todo el TTL
+    // justo después de la invalidación que debía retirarla.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public UsuarioDTO obtenerUsuarioPorId(Long id) {
-        Usuario usuario = usuarioRepository.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con id: " + id));
-        return convertirADTO(usuario);
+        return usuarioCache.obtenerPorId(id, clave -> ConsistenciaLecturas.enPrimario(() ->
+            convertirADTO(usuarioRepository.findResumenById(clave)
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con id: " + clave)))));
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public UsuarioDTO obtenerUsuarioPorUsername(String username) {
-        Usuario usuario = usuarioRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + username));
-        return convertirADTO(usuario);
+        return usuarioCache.obtenerPorUsername(username, clave -> ConsistenciaLecturas.enPrimario(() ->
+            convertirADTO(usuarioRepository.findResumenByUsername(clave)
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + clave)))));
     }
 
+    @Transactional(readOnly = true)
     public Page<UsuarioDTO> obtenerTodosLosUsuarios(Pageable pageable) {
-        Page<Usuario> usuarios = usuarioRepository.findAll(pageable);
-        return usuarios.map(this::convertirADTO);
+        if ("mybatis".equalsIgnoreCase(persistenciaUsuarios)) {
+            return PageableExecutionUtils.getPage(usuarioMapper.listar(pageable), pageable, usuarioMapper::contar);
+        }
+        return cargarPagina(usuarioRepository.findIds(pageable));
     }
 
+    @Transactional(readOnly = true)
     public Page<UsuarioDTO> buscarUsuarios(String searchTerm, Pageable pageable) {
-        Page<Usuario> usuarios = usuarioRepository.searchUsuarios(searchTerm, pageable);
-        return usuarios.map(this::convertirADTO);
+        // Con un orden explícito se respeta el pedido; sin él, el modo trigram ordena por relevancia
+        if ("trigram".equalsIgnoreCase(modoBusqueda) && pageable.getSort().isUnsorted()) {
+            String termino = searchTerm.toLowerCase(Locale.ROOT);
+            return cargarPagina(usuarioRepository.searchIdsPorSimilitud(termino, "%" + termino + "%",
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize())));
+        }
+        return cargarPagina(usuarioRepository.searchIds(searchTerm, pageable));
     }
 
+    @Transactional(readOnly = true)
     public Page<UsuarioDTO> obtenerUsuariosPorPerfil(String perfilNombre, Pageable pageable) {
-        Page<Usuario> usuarios = usuarioRepository.findByPerfilNombre(perfilNombre, pageable);
-        return usuarios.map(this::convertirADTO);
+        return cargarPagina(usuarioRepository.findIdsByPerfilNombre(perfilNombre, pageable));
     }
 
-    public UsuarioDTO actualizarUsuario(Long id, UsuarioDTO usuarioDTO) {
-        Usuario usuario = usuarioRepository.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con id: " + id));
+    // versionEsperada: la indicada en If-Match; null para una actualización incondicional
+    public UsuarioDTO actualizarUsuario(Long id, UsuarioDTO usuarioDTO, Long versionEsperada) {
+        Usuario usuario = cargarParaActualizar(id, usuarioDTO.getPerfiles() != null);
+        comprobarVersion(usuario, versionEsperada);
 
-        // Validar que el nuevo username no existe (si es diferente)
-        if (!usuario.getUsername().equals(usuarioDTO.getUsername()) && 
-            usuarioRepository.existsByUsername(usuarioDTO.getUsername())) {
-            throw new UserAlreadyExistsException("El nombre de usuario ya existe: " + usuarioDTO.getUsername());
-        }
-
-        // Validar que el nuevo email no existe (si es diferente)
-        if (!usuario.getEmail().equals(usuarioDTO.getEmail()) && 
-            usuarioRepository.existsByEmail(usuarioDTO.getEmail())) {
-            throw new UserAlreadyExistsException("El email ya existe: " + usuarioDTO.getEmail());
+        // Validar que el nuevo username o email no existen (si han cambiado)
+        if (!usuario.getUsername().equals(usuarioDTO.getUsername()) ||
+            !usuario.getEmail().equals(usuarioDTO.getEmail())) {
+            validarUnicidad(usuarioDTO, id);
         }
 
         // Actualizar campos
         usuario.setUsername(usuarioDTO.getUsername());
         usuario.setEmail(usuarioDTO.getEmail());
         
+        // Una contraseña nueva o la desactivación invalidan las sesiones abiertas
+        boolean revocarSesiones = usuario.getActivo() && Boolean.FALSE.equals(usuarioDTO.getActivo());
+
         // Solo actualizar la contraseña si se proporciona una nueva
         if (usuarioDTO.getPassword() != null && !usuarioDTO.getPassword().isEmpty()) {
             usuario.setPassword(passwordEncoder.encode(usuarioDTO.getPassword()));
+            revocarSesiones = true;
+        }
+        if (revocarSesiones) {
+            tokenRevocationRegistry.revocar(id);
+            refreshTokenService.revocarTodos(id);
         }
         
         usuario.setNombre(usuarioDTO.getNombre());
@@ -123,16 +212,91 @@ public class UsuarioService {
 
         // Actualizar perfiles
         if (usuarioDTO.getPerfiles() != null) {
-            Set<Perfil> perfiles = new HashSet<>();
-            for (String perfilNombre : usuarioDTO.getPerfiles()) {
-                Perfil perfil = perfilRepository.findByNombre(perfilNombre)
-                    .orElseThrow(() -> new ResourceNotFoundException("Perfil no encontrado: " + perfilNombre));
-                perfiles.add(perfil);
+            aplicarPerfiles(usuario, usuarioDTO.getPerfiles());
+        }
+
+        Usuario usuarioActualizado = guardarVersionado(usuario);
+        eventPublisher.publishEvent(UsuarioModificadoEvent.de(id));
+        return convertirADTO(usuarioActualizado);
+    }
+
+    /**
+     * JSON Merge Patch (RFC 7396): solo cambian los campos presentes en el cuerpo; null borra los
+     * opcionales (apellidos) y, en perfiles, deja al usuario sin ninguno. La contraseña solo se
+     * valida si se envía.
+     */
+    public UsuarioDTO actualizarUsuarioParcialmente(Long id, JsonNode cambios, Long versionEsperada) {
+        if (cambios == null || !cambios.isObject()) {
+            throw new ParcheInvalidoException("El cuerpo debe ser un objeto JSON");
+        }
+        Set<String> campos = new HashSet<>();
+        cambios.fieldNames().forEachRemaining(campo -> {
+            if (CAMPOS_MODIFICABLES.contains(campo)) {
+                campos.add(campo);
+            } else if (!CAMPOS_SOLO_LECTURA.contains(campo)) {
+                throw new ParcheInvalidoException("Campo desconocido: " + campo);
             }
-            usuario.setPerfiles(perfiles);
+        });
+
+        UsuarioDTO valores;
+        try {
+            valores = objectMapper.treeToValue(cambios, UsuarioDTO.class);
+        } catch (JsonProcessingException ex) {
+            throw new ParcheInvalidoException("Valor no válido: " + ex.getOriginalMessage());
+        }
+        List<String> errores = campos.stream()
+            .flatMap(campo -> validator.validateProperty(valores, campo).stream())
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.toList());
+        if (campos.contains("activo") && valores.getActivo() == null) {
+            errores.add("El estado activo no puede ser null");
+        }
+        if (!errores.isEmpty()) {
+            throw new ParcheInvalidoException(String.join("; ", errores));
+        }
+
+        Usuario usuario = cargarParaActualizar(id, campos.contains("perfiles"));
+        comprobarVersion(usuario, versionEsperada);
+
+        String username = campos.contains("username") ? valores.getUsername() : usuario.getUsername();
+        String email = campos.contains("email") ? valores.getEmail() : usuario.getEmail();
+        if (!usuario.getUsername().equals(username) || !usuario.getEmail().equals(email)) {
+            UsuarioDTO unicidad = new UsuarioDTO();
+            unicidad.setUsername(username);
+            unicidad.setEmail(email);
+            validarUnicidad(unicidad, id);
+        }
+        usuario.setUsername(username);
+        usuario.setEmail(email);
+        if (campos.contains("nombre")) {
+            usuario.setNombre(valores.getNombre());
+        }
+        if (campos.contains("apellidos")) {
+            usuario.setApellidos(valores.getApellidos());
+        }
+
+        // Una contraseña nueva o la desactivación invalidan las sesiones abiertas
+        boolean revocarSesiones = false;
+        if (campos.contains("password")) {
+            usuario.setPassword(passwordEncoder.encode(valores.getPassword()));
+            revocarSesiones = true;
+        }
+        if (campos.contains("activo")) {
+            revocarSesiones |= usuario.getActivo() && !valores.getActivo();
+            usuario.setActivo(valores.getActivo());
+        }
+        if (revocarSesiones) {
+            tokenRevocationRegistry.revocar(id);
+            refreshTokenService.revocarTodos(id);
+        }
+
+        if (campos.contains("perfiles")) {
+            aplicarPerfiles(usuario, valores.getPerfiles() == null ? Set.of() : valores.getPerfiles());
         }
 
-        Usuario usuarioActualizado = usuarioRepository.save(usuario);
+        Usuario usuarioActualizado = guardarVersionado(usuario);
+        eventPublisher.publishEvent(UsuarioModificadoEvent.de(id));
         return convertirADTO(usuarioActualizado);
     }
 
@@ -140,14 +304,24 @@ public class UsuarioService {
         if (!usuarioRepository.existsById(id)) {
             throw new ResourceNotFoundException("Usuario no encontrado con id: " + id);
         }
+        refreshTokenService.eliminarTodos(id);
         usuarioRepository.deleteById(id);
+        tokenRevocationRegistry.revocar(id);
+        eventPublisher.publishEvent(UsuarioModificadoEvent.de(id));
     }
 
-    public void cambiarEstadoUsuario(Long id, boolean activo) {
+    public void cambiarEstadoUsuario(Long id, boolean activo, Long versionEsperada) {
         Usuario usuario = usuarioRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con id: " + id));
+        comprobarVersion(usuario, versionEsperada);
         usuario.setActivo(activo);
-        usuarioRepository.save(usuario);
+        guardarVersionado(usuario);
+        eventPublisher.publishEvent(UsuarioModificadoEvent.de(id));
+
+        if (!activo) {
+            tokenRevocationRegistry.revocar(id);
+            refreshTokenService.revocarTodos(id);
+        }
     }
 
     public void asignarPerfilAUsuario(Long usuarioId, Long perfilId) {
@@ -159,6 +333,7 @@ public class UsuarioService {
         
         usuario.getPerfiles().add(perfil);
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(UsuarioModificadoEvent.de(usuarioId));
     }
 
     public void removerPerfilDeUsuario(Long usuarioId, Long perfilId) {
@@ -170,6 +345,279 @@ public class UsuarioService {
         
         usuario.getPerfiles().remove(perfil);
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(UsuarioModificadoEvent.de(usuarioId));
+    }
+
+    public OperacionMasivaResultado cambiarEstadoUsuarios(SeleccionUsuariosDTO seleccion, boolean activo) {
+        List<Long> ids = resolverSeleccion(seleccion);
+        LocalDateTime ahora = LocalDateTime.now();
+        int afectados = porBloques(ids, bloque -> usuarioRepository.actualizarActivo(bloque, activo, ahora));
+
+        if (!activo && !ids.isEmpty()) {
+            tokenRevocationRegistry.revocar(ids);
+            porBloques(ids, bloque -> {
+                refreshTokenService.revocarTodos(bloque);
+                return 0;
+            });
+        }
+        publicarModificados(ids);
+        return new OperacionMasivaResultado(ids.size(), afectados);
+    }
+
+    public OperacionMasivaResultado asignarPerfilAUsuarios(SeleccionUsuariosDTO seleccion, Long perfilId) {
+        validarPerfilExiste(perfilId);
+        List<Long> ids = resolverSeleccion(seleccion);
+        LocalDateTime ahora = LocalDateTime.now();
+        int afectados = conPerfilesVigentes(() -> List.of(perfilId), () -> porBloques(ids, bloque -> {
+            usuarioRepository.incrementarVersionSinPerfil(bloque, perfilId, ahora);
+            return usuarioRepository.asignarPerfil(bloque, perfilId);
+        }));
+        publicarModificados(ids);
+        return new OperacionMasivaResultado(ids.size(), afectados);
+    }
+
+    public OperacionMasivaResultado removerPerfilDeUsuarios(SeleccionUsuariosDTO seleccion, Long perfilId) {
+        validarPerfilExiste(perfilId);
+        List<Long> ids = resolverSeleccion(seleccion);
+        LocalDateTime ahora = LocalDateTime.now();
+        int afectados = porBloques(ids, bloque -> {
+            usuarioRepository.incrementarVersionConPerfil(bloque, perfilId, ahora);
+            return usuarioRepository.removerPerfil(bloque, perfilId);
+        });
+        publicarModificados(ids);
+        return new OperacionMasivaResultado(ids.size(), afectados);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<UsuarioDTO> obtenerUsuariosPorCursor(String cursor, int size, boolean incluirTotal) {
+        CursorPosicion posicion = CursorPosicion.decodificar(cursor);
+        int tamano = ajustarTamano(size);
+        List<Long> ids = usuarioRepository.findIdsDespuesDe(posicion.getFechaCreacion(), posicion.getId(),
+            PageRequest.of(0, tamano + 1));
+        return cargarPaginaCursor(ids, tamano, incluirTotal ? usuarioRepository.count() : null);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<UsuarioDTO> buscarUsuariosPorCursor(String searchTerm, String cursor, int size, boolean incluirTotal) {
+        CursorPosicion posicion = CursorPosicion.decodificar(cursor);
+        int tamano = ajustarTamano(size);
+        List<Long> ids = usuarioRepository.searchIdsDespuesDe(searchTerm, posicion.getFechaCreacion(), posicion.getId(),
+            PageRequest.of(0, tamano + 1));
+        return cargarPaginaCursor(ids, tamano, incluirTotal ? usuarioRepository.countSearch(searchTerm) : null);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<UsuarioDTO> obtenerUsuariosPorPerfilPorCursor(String perfilNombre, String cursor, int size,
+                                                                   boolean incluirTotal) {
+        CursorPosicion posicion = CursorPosicion.decodificar(cursor);
+        int tamano = ajustarTamano(size);
+        List<Long> ids = usuarioRepository.findIdsByPerfilNombreDespuesDe(perfilNombre, posicion.getFechaCreacion(),
+            posicion.getId(), PageRequest.of(0, tamano + 1));
+        return cargarPaginaCursor(ids, tamano, incluirTotal ? usuarioRepository.countByPerfilNombre(perfilNombre) : null);
+    }
+
+    // Ids explícitos, los que coinciden con la búsqueda o los del perfil indicado
+    private List<Long> resolverSeleccion(SeleccionUsuariosDTO seleccion) {
+        if (seleccion.getIds() != null && !seleccion.getIds().isEmpty()) {
+            return seleccion.getIds().stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        }
+        if (seleccion.getSearchTerm() != null && !seleccion.getSearchTerm().isBlank()) {
+            return usuarioRepository.findAllIdsBySearch(seleccion.getSearchTerm());
+        }
+        return usuarioRepository.findAllIdsByPerfilNombre(seleccion.getPerfilNombre());
+    }
+
+    // Una sentencia por bloque de ids; devuelve el total de filas modificadas
+    private int porBloques(List<Long> ids, Function<List<Long>, Integer> sentencia) {
+        int total = 0;
+        for (int desde = 0; desde < ids.size(); desde += tamanoBloque) {
+            total += sentencia.apply(ids.subList(desde, Math.min(desde + tamanoBloque, ids.size())));
+        }
+        return total;
+    }
+
+    // Con perfiles: se van a modificar, mejor en la misma consulta que cargarlos después de forma perezosa
+    private Usuario cargarParaActualizar(Long id, boolean conPerfiles) {
+        return (conPerfiles ? usuarioRepository.findConPerfilesById(id) : usuarioRepository.findById(id))
+            .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con id: " + id));
+    }
+
+    // Se modifica la colección gestionada en lugar de sustituirla: Hibernate borra e inserta solo las filas
+    // de usuario_perfiles que cambian (un Set nuevo borraría todas las del usuario y las volvería a insertar)
+    private void aplicarPerfiles(Usuario usuario, Set<String> nombres) {
+        Set<Perfil> deseados = resolverPerfiles(nombres);
+        Set<Long> idsDeseados = deseados.stream().map(Perfil::getId).collect(Collectors.toSet());
+        usuario.getPerfiles().removeIf(perfil -> !idsDeseados.contains(perfil.getId()));
+        Set<Long> idsActuales = usuario.getPerfiles().stream().map(Perfil::getId).collect(Collectors.toSet());
+        deseados.stream()
+            .filter(perfil -> !idsActuales.contains(perfil.getId()))
+            .forEach(usuario.getPerfiles()::add);
+    }
+
+    private void comprobarVersion(Usuario usuario, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(usuario.getVersion())) {
+            throw new PrecondicionFallidaException("El usuario " + usuario.getId() + " ha sido modificado (versión actual: "
+                + usuario.getVersion() + ")");
+        }
+    }
+
+    // Flush inmediato: el DTO devuelto lleva ya la nueva versión y un conflicto con una escritura
+    // concurrente (UPDATE ... WHERE version = ?) se responde con 412 en lugar de fallar en el commit
+    private Usuario guardarVersionado(Usuario usuario) {
+        try {
+            return conPerfilesVigentes(() -> idsPerfiles(usuario), () -> usuarioRepository.saveAndFlush(usuario));
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            throw new PrecondicionFallidaException("El usuario " + usuario.getId() + " ha sido modificado por otra petición", ex);
+        }
+    }
+
+    // Los perfiles del catálogo se enlazan por id sin consultar la tabla, pero esta instancia puede no haber
+    // recargado aún un borrado hecho en otra: entonces la FK de usuario_perfiles rechaza la escritura (o Hibernate
+    // no encuentra el perfil al añadirlo a una colección ya cargada). Se recarga el catálogo y, si alguno de los
+    // perfiles enlazados ya no existe, se responde 404 en vez del error de integridad.
+    private <T> T conPerfilesVigentes(Supplier<Collection<Long>> perfilIds, Supplier<T> escritura) {
+        try {
+            return escritura.get();
+        } catch (DataIntegrityViolationException | ObjectRetrievalFailureException ex) {
+            catalogoPerfiles.recargar();
+            String faltan = perfilIds.get().stream()
+                .filter(perfilId -> catalogoPerfiles.buscarPorId(perfilId).isEmpty())
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(", "));
+            if (faltan.isEmpty()) {
+                throw ex;
+            }
+            throw new ResourceNotFoundException("Perfiles no encontrados con id: " + faltan);
+        }
+    }
+
+    // Sin inicializar la colección no se ha modificado, así que no puede ser la causa del error
+    private static Collection<Long> idsPerfiles(Usuario usuario) {
+        return Hibernate.isInitialized(usuario.getPerfiles())
+            ? usuario.getPerfiles().stream().map(Perfil::getId).collect(Collectors.toList())
+            : List.of();
+    }
+
+    private void validarPerfilExiste(Long perfilId) {
+        if (catalogoPerfiles.buscarPorId(perfilId).isEmpty() && !perfilRepository.existsById(perfilId)) {
+            throw new ResourceNotFoundException("Perfil no encontrado con id: " + perfilId);
+        }
+    }
+
+    // Un único evento para todo el lote: las cachés se invalidan tras el commit
+    private void publicarModificados(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            eventPublisher.publishEvent(new UsuarioModificadoEvent(Set.copyOf(ids)));
+        }
+    }
+
+    private void validarUnicidad(UsuarioDTO usuarioDTO, long excluirId) {
+        List<Usuario> conflictos = usuarioRepository.findConflictos(usuarioDTO.getUsername(), usuarioDTO.getEmail(), excluirId);
+        if (conflictos.stream().anyMatch(u -> u.getUsername().equals(usuarioDTO.getUsername()))) {
+            throw new UserAlreadyExistsException("El nombre de usuario ya existe: " + usuarioDTO.getUsername());
+        }
+        if (!conflictos.isEmpty()) {
+            throw new UserAlreadyExistsException("El email ya existe: " + usuarioDTO.getEmail());
+        }
+    }
+
+    /**
+     * Resuelve los nombres de perfil con una sola consulta IN e informa de todos los que no existen a la vez.
+     */
+    private Set<Perfil> resolverPerfiles(Set<String> nombres) {
+        if (nombres.isEmpty()) {
+            return new HashSet<>();
+        }
+        // Los perfiles del catálogo se asocian como referencias por id sin consultar la tabla;
+        // solo los que falten (creados en otra instancia tras la última recarga) se buscan en la base de datos
+        Set<Perfil> perfiles = new HashSet<>();
+        Set<String> pendientes = new HashSet<>();
+        for (String nombre : nombres) {
+            catalogoPerfiles.buscarPorNombre(nombre).ifPresentOrElse(
+                perfil -> perfiles.add(referenciaPerfil(perfil)),
+                () -> pendientes.add(nombre));
+        }
+        if (!pendientes.isEmpty()) {
+            perfiles.addAll(perfilRepository.findByNombreIn(pendientes));
+        }
+        if (perfiles.size() < nombres.size()) {
+            Set<String> encontrados = perfiles.stream().map(Perfil::getNombre).collect(Collectors.toSet());
+            String faltan = nombres.stream()
+                .filter(nombre -> !encontrados.contains(nombre))
+                .sorted()
+                .collect(Collectors.joining(", "));
+            throw new ResourceNotFoundException("Perfiles no encontrados: " + faltan);
+        }
+        return perfiles;
+    }
+
+    private Perfil referenciaPerfil(PerfilDTO dto) {
+        Perfil perfil = new Perfil();
+        perfil.setId(dto.getId());
+        perfil.setNombre(dto.getNombre());
+        perfil.setDescripcion(dto.getDescripcion());
+        perfil.setFechaCreacion(dto.getFechaCreacion());
+        perfil.setFechaModificacion(dto.getFechaModificacion());
+        perfil.setVersion(dto.getVersion());
+        return perfil;
+    }
+
+    /**
+     * Completa una página de ids con los usuarios y sus perfiles en una única consulta,
+     * de modo que el número de consultas por página no depende de su tamaño.
+     */
+    private Page<UsuarioDTO> cargarPagina(Page<Long> ids) {
+        return new PageImpl<>(cargarUsuarios(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+    }
+
+    // Se piden tamano + 1 ids: si llega el extra hay página siguiente y no hace falta contar
+    private CursorPage<UsuarioDTO> cargarPaginaCursor(List<Long> ids, int tamano, Long total) {
+        boolean haySiguiente = ids.size() > tamano;
+        List<UsuarioDTO> contenido = cargarUsuarios(haySiguiente ? ids.subList(0, tamano) : ids);
+
+        String siguiente = null;
+        if (haySiguiente && !contenido.isEmpty()) {
+            UsuarioDTO ultimo = contenido.get(contenido.size() - 1);
+            siguiente = new CursorPosicion(ultimo.getFechaCreacion(), ultimo.getId()).codificar();
+        }
+        return new CursorPage<>(contenido, siguiente, contenido.size(), total);
+    }
+
+    private List<UsuarioDTO> cargarUsuarios(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UsuarioResumen> usuarios = usuarioRepository.findResumenByIdIn(ids).stream()
+            .collect(Collectors.toMap(UsuarioResumen::getId, Function.identity()));
+
+        // Se respeta el orden de la primera fase; un usuario borrado entre ambas consultas se omite
+        return ids.stream()
+            .map(usuarios::get)
+            .filter(Objects::nonNull)
+            .map(this::convertirADTO)
+            .collect(Collectors.toList());
+    }
+
+    private int ajustarTamano(int size) {
+        return Math.max(1, Math.min(size, TAMANO_MAXIMO_CURSOR));
+    }
+
+    private UsuarioDTO convertirADTO(UsuarioResumen usuario) {
+        UsuarioDTO dto = new UsuarioDTO();
+        dto.setId(usuario.getId());
+        dto.setUsername(usuario.getUsername());
+        dto.setEmail(usuario.getEmail());
+        dto.setNombre(usuario.getNombre());
+        dto.setApellidos(usuario.getApellidos());
+        dto.setActivo(usuario.getActivo());
+        dto.setFechaCreacion(usuario.getFechaCreacion());
+        dto.setFechaModificacion(usuario.getFechaModificacion());
+        dto.setVersion(usuario.getVersion());
+        dto.setPerfiles(usuario.getPerfiles() == null
+            ? new HashSet<>()
+            : new HashSet<>(Arrays.asList(usuario.getPerfiles().split(UsuarioResumen.SEPARADOR_PERFILES))));
+        return dto;
     }
 
     private UsuarioDTO convertirADTO(Usuario usuario) {
@@ -182,6 +630,7 @@ public class UsuarioService {
         dto.setActivo(usuario.getActivo());
         dto.setFechaCreacion(usuario.getFechaCreacion());
         dto.setFechaModificacion(usuario.getFechaModificacion());
+        dto.setVersion(usuario.getVersion());
         
         if (usuario.getPerfiles() != null) {
             Set<String> perfilesNombres = usuario.getPerfiles().stream()
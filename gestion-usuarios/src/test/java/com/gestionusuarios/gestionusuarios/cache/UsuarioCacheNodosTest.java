@@ -0,0 +1,79 @@
+package com.gestionusuarios.gestionusuarios.cache;
+
+import com.gestionusuarios.gestionusuarios.GestionUsuariosApplication;
+import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.service.UsuarioService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dos contextos de aplicación en la misma JVM hacen de dos nodos sobre la misma base H2:
+ * lo que modifica el nodo A debe dejar de servirse desde las cachés del nodo B (DTOs y principales)
+ * a través del LocalInvalidacionBus.
+ */
+class UsuarioCacheNodosTest {
+
+    private static ConfigurableApplicationContext nodoA;
+    private static ConfigurableApplicationContext nodoB;
+
+    @BeforeAll
+    static void arrancarNodos() {
+        nodoA = arrancar("create");
+        nodoB = arrancar("none");
+    }
+
+    @AfterAll
+    static void pararNodos() {
+        nodoB.close();
+        nodoA.close();
+    }
+
+    private static ConfigurableApplicationContext arrancar(String ddl) {
+        return new SpringApplicationBuilder(GestionUsuariosApplication.class).run(
+                "--spring.profiles.active=test",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:nodos;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=" + ddl,
+                "--app.usuario-cache.bus.tipo=local");
+    }
+
+    @Test
+    void laModificacionEnUnNodoInvalidaLaCacheDelOtro() {
+        UsuarioService servicioA = nodoA.getBean(UsuarioService.class);
+        UsuarioService servicioB = nodoB.getBean(UsuarioService.class);
+        UserDetailsService detallesB = nodoB.getBean(UserDetailsService.class);
+
+        UsuarioDTO usuario = new UsuarioDTO();
+        usuario.setUsername("ana");
+        usuario.setEmail("ana@example.com");
+        usuario.setPassword("secreto1");
+        usuario.setNombre("Ana");
+        Long id = servicioA.crearUsuario(usuario).getId();
+
+        // El nodo B guarda en caché la versión inicial y el principal
+        assertThat(servicioB.obtenerUsuarioPorId(id).getNombre()).isEqualTo("Ana");
+        assertThat(servicioB.obtenerUsuarioPorUsername("ana").getNombre()).isEqualTo("Ana");
+        assertThat(detallesB.loadUserByUsername("ana").isEnabled()).isTrue();
+
+        usuario.setNombre("Ana María");
+        usuario.setPassword(null);
+        servicioA.actualizarUsuario(id, usuario, null);
+
+        UsuarioDTO porId = servicioB.obtenerUsuarioPorId(id);
+        assertThat(porId.getNombre()).isEqualTo("Ana María");
+        assertThat(porId.getVersion()).isEqualTo(1L);
+        assertThat(servicioB.obtenerUsuarioPorUsername("ana").getNombre()).isEqualTo("Ana María");
+
+        servicioA.cambiarEstadoUsuario(id, false, null);
+
+        assertThat(servicioB.obtenerUsuarioPorId(id).getActivo()).isFalse();
+        assertThat(servicioB.obtenerUsuarioPorUsername("ana").getActivo()).isFalse();
+        assertThat(detallesB.loadUserByUsername("ana").isEnabled()).isFalse();
+    }
+}
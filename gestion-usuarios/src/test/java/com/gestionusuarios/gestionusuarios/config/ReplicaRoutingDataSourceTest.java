@@ -0,0 +1,167 @@
+package com.gestionusuarios.gestionusuarios.config;
+
+import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.entity.Usuario;
+import com.gestionusuarios.gestionusuarios.repository.UsuarioRepository;
+import com.gestionusuarios.gestionusuarios.service.UsuarioService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Dos bases H2 en memoria hacen de primario y réplica. La réplica se copia del primario una vez
+ * y después se deja atrasada: un usuario creado más tarde solo existe en el primario, así que
+ * cada lectura indica a qué base ha ido.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingDataSourceTest.PRIMARIO,
+        "app.datasource.replica.urls=" + ReplicaRoutingDataSourceTest.REPLICA,
+        "app.datasource.replica.read-your-writes-window=" + ReplicaRoutingDataSourceTest.VENTANA_MS
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class ReplicaRoutingDataSourceTest {
+
+    static final String PRIMARIO = "jdbc:h2:mem:replicas_primario;DB_CLOSE_DELAY=-1";
+    static final String REPLICA = "jdbc:h2:mem:replicas_replica;DB_CLOSE_DELAY=-1";
+    static final long VENTANA_MS = 1500;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @TempDir
+    Path directorio;
+
+    @AfterEach
+    void limpiarAutenticacion() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void enrutaLasLecturasSegunLaVentanaReadYourWrites() throws Exception {
+        Usuario escritor = usuarioRepository.save(
+                new Usuario("escritor", "escritor@example.com", passwordEncoder.encode("secreto1"), "Escritor", null));
+        replicar();
+        crearUsuario("reciente", "secreto1");
+
+        assertThat(leeDelPrimario(null)).as("lectura anónima").isFalse();
+
+        nuevaPeticion();
+        autenticar("escritor");
+        usuarioService.cambiarEstadoUsuario(escritor.getId(), true, null);
+        assertThat(leeDelPrimario("escritor")).as("escritor dentro de la ventana").isTrue();
+        assertThat(leeDelPrimario("otro")).as("otro usuario dentro de la ventana").isFalse();
+
+        Thread.sleep(VENTANA_MS + 500);
+        assertThat(leeDelPrimario("escritor")).as("escritor pasada la ventana").isFalse();
+    }
+
+    @Test
+    void elLoginLeeSiempreDelPrimario() throws Exception {
+        replicar();
+        crearUsuario("solo_primario", "secreto1");
+
+        MvcResult login = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"solo_primario\",\"password\":\"secreto1\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(login))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void losFallosDeLaCacheDeUsuariosSeLeenDelPrimario() throws Exception {
+        replicar();
+        crearUsuario("cacheado", "secreto1");
+
+        nuevaPeticion();
+        SecurityContextHolder.clearContext();
+        assertThat(usuarioService.obtenerUsuarioPorUsername("cacheado").getUsername()).isEqualTo("cacheado");
+    }
+
+    private void crearUsuario(String username, String password) {
+        nuevaPeticion();
+        UsuarioDTO usuario = new UsuarioDTO();
+        usuario.setUsername(username);
+        usuario.setEmail(username + "@example.com");
+        usuario.setPassword(password);
+        usuario.setNombre("Nombre");
+        usuarioService.crearUsuario(usuario);
+    }
+
+    // El usuario "reciente" solo existe en el primario
+    private boolean leeDelPrimario(String usuario) {
+        nuevaPeticion();
+        if (usuario != null) {
+            autenticar(usuario);
+        } else {
+            SecurityContextHolder.clearContext();
+        }
+        return usuarioService.buscarUsuarios("reciente", PageRequest.of(0, 10)).getTotalElements() > 0;
+    }
+
+    // El entorno web simulado asocia una petición al hilo de la prueba: sin esto, la primera escritura
+    // marcaría esa petición y todas las lecturas posteriores irían al primario
+    private void nuevaPeticion() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private void autenticar(String usuario) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                usuario, null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    // Copia completa del primario sobre la réplica, que a partir de aquí queda atrasada
+    private void replicar() throws SQLException {
+        String copia = directorio.resolve("primario.sql").toString();
+        try (Connection primario = DriverManager.getConnection(PRIMARIO, "sa", "");
+             Connection replica = DriverManager.getConnection(REPLICA, "sa", "")) {
+            replica.createStatement().execute("DROP ALL OBJECTS");
+            try (PreparedStatement volcado = primario.prepareStatement("SCRIPT TO ?")) {
+                volcado.setString(1, copia);
+                volcado.execute();
+            }
+            try (PreparedStatement carga = replica.prepareStatement("RUNSCRIPT FROM ?")) {
+                carga.setString(1, copia);
+                carga.execute();
+            }
+        }
+    }
+}
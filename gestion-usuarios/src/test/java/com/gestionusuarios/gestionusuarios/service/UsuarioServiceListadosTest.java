@@ -0,0 +1,100 @@
+package com.gestionusuarios.gestionusuarios.service;
+
+import com.gestionusuarios.gestionusuarios.dto.UsuarioDTO;
+import com.gestionusuarios.gestionusuarios.entity.Perfil;
+import com.gestionusuarios.gestionusuarios.entity.Usuario;
+import com.gestionusuarios.gestionusuarios.repository.PerfilRepository;
+import com.gestionusuarios.gestionusuarios.repository.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Los listados paginados cargan los perfiles de toda la página de una vez: el número de
+ * sentencias por página (ids, usuarios con perfiles y recuento) no depende de su tamaño.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listados;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UsuarioServiceListadosTest {
+
+    private static final int USUARIOS = 60;
+    private static final long SENTENCIAS_POR_PAGINA = 3;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PerfilRepository perfilRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    void crearUsuarios() {
+        Perfil ventas = perfilRepository.save(new Perfil("Ventas, Norte", "Equipo de ventas"));
+        Perfil soporte = perfilRepository.save(new Perfil("SOPORTE", "Equipo de soporte"));
+        for (int i = 0; i < USUARIOS; i++) {
+            Usuario usuario = new Usuario("listado" + i, "listado" + i + "@example.com", "secreto", "Nombre" + i, "Apellido");
+            usuario.setPerfiles(Set.of(ventas, soporte));
+            usuarioRepository.save(usuario);
+        }
+    }
+
+    @Test
+    void obtenerTodosLosUsuariosUsaLasMismasSentenciasParaCualquierTamano() {
+        comprobarSentenciasPorPagina(usuarioService::obtenerTodosLosUsuarios);
+    }
+
+    @Test
+    void buscarUsuariosUsaLasMismasSentenciasParaCualquierTamano() {
+        comprobarSentenciasPorPagina(pageable -> usuarioService.buscarUsuarios("listado", pageable));
+    }
+
+    @Test
+    void obtenerUsuariosPorPerfilUsaLasMismasSentenciasParaCualquierTamano() {
+        comprobarSentenciasPorPagina(pageable -> usuarioService.obtenerUsuariosPorPerfil("Ventas, Norte", pageable));
+    }
+
+    private void comprobarSentenciasPorPagina(Function<Pageable, Page<UsuarioDTO>> listado) {
+        long pequena = sentencias(listado, PageRequest.of(0, 5));
+        long grande = sentencias(listado, PageRequest.of(0, 50));
+
+        assertThat(pequena).isEqualTo(SENTENCIAS_POR_PAGINA);
+        assertThat(grande).isEqualTo(pequena);
+    }
+
+    private long sentencias(Function<Pageable, Page<UsuarioDTO>> listado, Pageable pageable) {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        Page<UsuarioDTO> pagina = listado.apply(pageable);
+
+        assertThat(pagina.getContent()).hasSize(pageable.getPageSize());
+        assertThat(pagina.getTotalElements()).isEqualTo(USUARIOS);
+        assertThat(pagina.getContent()).allSatisfy(usuario ->
+                assertThat(usuario.getPerfiles()).containsExactlyInAnyOrder("Ventas, Norte", "SOPORTE"));
+        return estadisticas.getPrepareStatementCount();
+    }
+}